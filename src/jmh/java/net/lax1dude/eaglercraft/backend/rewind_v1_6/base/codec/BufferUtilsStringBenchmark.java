@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Converts the strings the legacy client sees most, a chat line with a non
+ * ASCII character, a sign line and a tab list name, in both directions
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferUtilsStringBenchmark {
+
+	@Param({ "chat", "sign", "tab" })
+	public String kind;
+
+	private String value;
+	private int maxLen;
+	private ByteBuf utf8In;
+	private ByteBuf legacyIn;
+	private ByteBuf out;
+
+	@Setup
+	public void setup() {
+		switch (kind) {
+		case "chat":
+			value = "\u00A7e<Steve> \u00A7fanyone want to trade 32 iron for a diamond pick at spawn? \u00A7a\u2714";
+			maxLen = 32767;
+			break;
+		case "sign":
+			value = "\u00A71[Shop] Iron";
+			maxLen = 15;
+			break;
+		case "tab":
+			value = "\u00A76[VIP] \u00A7fNotch";
+			maxLen = 16;
+			break;
+		default:
+			throw new IllegalArgumentException(kind);
+		}
+		byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+		utf8In = Unpooled.buffer();
+		BufferUtils.writeVarInt(utf8In, utf8.length);
+		utf8In.writeBytes(utf8);
+		legacyIn = Unpooled.buffer();
+		BufferUtils.writeLegacyMCString(legacyIn, value, maxLen);
+		out = Unpooled.buffer(256);
+	}
+
+	@Benchmark
+	public ByteBuf convertMCString2Legacy() {
+		utf8In.readerIndex(0);
+		out.clear();
+		BufferUtils.convertMCString2Legacy(utf8In, out, maxLen);
+		return out;
+	}
+
+	@Benchmark
+	public ByteBuf convertLegacyMCString() {
+		legacyIn.readerIndex(0);
+		out.clear();
+		BufferUtils.convertLegacyMCString(legacyIn, out, maxLen);
+		return out;
+	}
+
+	@Benchmark
+	public String readLegacyMCString() {
+		legacyIn.readerIndex(0);
+		return BufferUtils.readLegacyMCString(legacyIn, maxLen);
+	}
+
+	@Benchmark
+	public ByteBuf writeLegacyMCString() {
+		out.clear();
+		BufferUtils.writeLegacyMCString(out, value, maxLen);
+		return out;
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Converts a typical mob metadata packet, run with -prof gc to see the
+ * allocation rate
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataRemapperBenchmark {
+
+	private static final int ZOMBIE = 54 + 100;
+
+	private ByteBuf in;
+	private ByteBuf out;
+
+	@Setup
+	public void setup() {
+		in = Unpooled.buffer();
+		in.writeByte((0 << 5) | 0);
+		in.writeByte(0x02);
+		in.writeByte((1 << 5) | 1);
+		in.writeShort(300);
+		in.writeByte((3 << 5) | 6);
+		in.writeFloat(20.0f);
+		in.writeByte((2 << 5) | 7);
+		in.writeInt(0);
+		in.writeByte((0 << 5) | 8);
+		in.writeByte(0);
+		in.writeByte((0 << 5) | 12);
+		in.writeByte(1);
+		in.writeByte((0 << 5) | 13);
+		in.writeByte(0);
+		in.writeByte((0 << 5) | 14);
+		in.writeByte(0);
+		in.writeByte(0x7F);
+		out = Unpooled.buffer(256);
+	}
+
+	@Benchmark
+	public ByteBuf convertZombieMetadata() {
+		in.readerIndex(0);
+		out.clear();
+		MetadataRemapper.convertMetadata2Legacy(in, out, ZOMBIE, null);
+		return out;
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Converts the NBT of a renamed item with lore, with and without an ench list,
+ * through the pre-scan and through the visitor alone. The item cache is turned
+ * off so every call does the work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Deaglerxrewind.nbtCacheBytes=0")
+public class NBTTranscoderBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean enchanted;
+
+	private NBTTranscoder transcoder;
+	private ByteBuf in;
+	private ByteBuf out;
+
+	@Setup
+	public void setup() {
+		transcoder = new NBTTranscoder(MetadataRemapperTest.createPlayer());
+		in = Unpooled.buffer();
+		in.writeByte(10);
+		writeName(in, "");
+		in.writeByte(10);
+		writeName(in, "display");
+		in.writeByte(8);
+		writeName(in, "Name");
+		writeName(in, "\u00A76Excalibur");
+		in.writeByte(9);
+		writeName(in, "Lore");
+		in.writeByte(8);
+		in.writeInt(2);
+		writeName(in, "\u00A77A legendary blade");
+		writeName(in, "\u00A77Found in the lake");
+		in.writeByte(0);
+		in.writeByte(3);
+		writeName(in, "RepairCost");
+		in.writeInt(3);
+		in.writeByte(1);
+		writeName(in, "Unbreakable");
+		in.writeByte(1);
+		if (enchanted) {
+			in.writeByte(9);
+			writeName(in, "ench");
+			in.writeByte(10);
+			in.writeInt(2);
+			in.writeByte(2);
+			writeName(in, "id");
+			in.writeShort(16);
+			in.writeByte(2);
+			writeName(in, "lvl");
+			in.writeShort(5);
+			in.writeByte(0);
+			in.writeByte(2);
+			writeName(in, "id");
+			in.writeShort(34);
+			in.writeByte(2);
+			writeName(in, "lvl");
+			in.writeShort(3);
+			in.writeByte(0);
+		}
+		in.writeByte(0);
+		out = Unpooled.buffer(512);
+	}
+
+	private static void writeName(ByteBuf buf, String str) {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		buf.writeShort(bytes.length);
+		buf.writeBytes(bytes);
+	}
+
+	@Benchmark
+	public ByteBuf preScan() {
+		in.readerIndex(0);
+		out.clear();
+		transcoder.convertNBT2Legacy(in, out);
+		return out;
+	}
+
+	@Benchmark
+	public ByteBuf fullTranscode() {
+		in.readerIndex(0);
+		out.clear();
+		transcoder.convertNBT2LegacyFull(in, out);
+		return out;
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import io.netty.buffer.ByteBuf;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.BufferUtils;
+
+/**
+ * Decides if a legacy handshake may proceed before any per-player state is
+ * allocated for it
+ */
+public class RewindAdmissionController {
+
+	public static final int IP_RATE_LIMIT = Integer.getInteger("eaglerxrewind.ipRateLimit", 10);
+	public static final int IP_RATE_WINDOW = Integer.getInteger("eaglerxrewind.ipRateWindow", 10000);
+	public static final int MAX_HANDSHAKES = Integer.getInteger("eaglerxrewind.maxHandshakes", 256);
+	public static final int MAX_SESSIONS = Integer.getInteger("eaglerxrewind.maxSessions", 0);
+
+	public static final int ADMITTED = 0;
+	public static final int REJECTED_RATE = 1;
+	public static final int REJECTED_HANDSHAKES = 2;
+	public static final int REJECTED_SESSIONS = 3;
+
+	private static final ByteBuf KICK_RATE = BufferUtils
+			.createLegacyKickPacket("You are logging in too fast, try again later");
+	private static final ByteBuf KICK_FULL = BufferUtils.createLegacyKickPacket("Too many connections, try again later");
+
+	private static final Function<Object, RateBucket> BUCKET_FACTORY = (k) -> new RateBucket();
+
+	private static class RateBucket {
+
+		private long windowStart;
+		private int count;
+
+		private synchronized boolean tryAcquire(long now) {
+			if (now - windowStart >= IP_RATE_WINDOW) {
+				windowStart = now;
+				count = 0;
+			}
+			return ++count <= IP_RATE_LIMIT;
+		}
+
+		private synchronized boolean isExpired(long now) {
+			return now - windowStart >= IP_RATE_WINDOW;
+		}
+
+	}
+
+	private final ConcurrentHashMap<Object, RateBucket> ipBuckets = new ConcurrentHashMap<>();
+	private final AtomicInteger handshakes = new AtomicInteger();
+	private final AtomicInteger sessions = new AtomicInteger();
+	private final LongAdder rejectedRate = new LongAdder();
+	private final LongAdder rejectedHandshakes = new LongAdder();
+	private final LongAdder rejectedSessions = new LongAdder();
+	private volatile long lastPurge = 0l;
+
+	/**
+	 * Note: the key must be the bare address (no port), an InetAddress or the real
+	 * address string forwarded by the proxy
+	 */
+	public int tryAdmit(Object addressKey) {
+		long now = System.nanoTime() / 1000000l;
+		if (IP_RATE_LIMIT > 0 && addressKey != null) {
+			purgeBuckets(now);
+			if (!ipBuckets.computeIfAbsent(addressKey, BUCKET_FACTORY).tryAcquire(now)) {
+				rejectedRate.increment();
+				return REJECTED_RATE;
+			}
+		}
+		if (!tryIncrement(sessions, MAX_SESSIONS)) {
+			rejectedSessions.increment();
+			return REJECTED_SESSIONS;
+		}
+		if (!tryIncrement(handshakes, MAX_HANDSHAKES)) {
+			sessions.decrementAndGet();
+			rejectedHandshakes.increment();
+			return REJECTED_HANDSHAKES;
+		}
+		return ADMITTED;
+	}
+
+	private static boolean tryIncrement(AtomicInteger counter, int max) {
+		if (max <= 0) {
+			counter.incrementAndGet();
+			return true;
+		}
+		int i;
+		do {
+			i = counter.get();
+			if (i >= max) {
+				return false;
+			}
+		} while (!counter.compareAndSet(i, i + 1));
+		return true;
+	}
+
+	private void purgeBuckets(long now) {
+		long l = lastPurge;
+		if (now - l >= IP_RATE_WINDOW) {
+			synchronized (this) {
+				if (lastPurge != l) {
+					return;
+				}
+				lastPurge = now;
+			}
+			Iterator<RateBucket> itr = ipBuckets.values().iterator();
+			while (itr.hasNext()) {
+				if (itr.next().isExpired(now)) {
+					itr.remove();
+				}
+			}
+		}
+	}
+
+	public void handleHandshakeFinished() {
+		handshakes.decrementAndGet();
+	}
+
+	public void handleSessionClosed(boolean inHandshake) {
+		if (inHandshake) {
+			handshakes.decrementAndGet();
+		}
+		sessions.decrementAndGet();
+	}
+
+	public ByteBuf getKickPacket(int result) {
+		return (result == REJECTED_RATE ? KICK_RATE : KICK_FULL).duplicate();
+	}
+
+	public int getHandshakeCount() {
+		return handshakes.get();
+	}
+
+	public int getSessionCount() {
+		return sessions.get();
+	}
+
+	public long getRejectedRateCount() {
+		return rejectedRate.sum();
+	}
+
+	public long getRejectedHandshakesCount() {
+		return rejectedHandshakes.sum();
+	}
+
+	public long getRejectedSessionsCount() {
+		return rejectedSessions.sum();
+	}
+
+}
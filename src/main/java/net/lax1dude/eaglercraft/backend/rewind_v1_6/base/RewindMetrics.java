@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class RewindMetrics {
+
+	/**
+	 * Buckets: 0, under 1K, then powers of 4 up to 4M and above
+	 */
+	public static final int BACKLOG_BUCKETS = 9;
+
+	private final LongAdder handshakesInFlight = new LongAdder();
+	private final LongAdder handshakeBytes = new LongAdder();
+	private final LongAdder handshakeTimeouts = new LongAdder();
+	private final LongAdder pendingOutboundBytes = new LongAdder();
+	private final LongAdder backlogEvictions = new LongAdder();
+	private final LongAdder nbtViolations = new LongAdder();
+	private final LongAdder idleConnections = new LongAdder();
+	private final LongAdder[] backlogHistogram;
+
+	public RewindMetrics() {
+		backlogHistogram = new LongAdder[BACKLOG_BUCKETS];
+		for (int i = 0; i < BACKLOG_BUCKETS; ++i) {
+			backlogHistogram[i] = new LongAdder();
+		}
+	}
+
+	public void handleHandshakeStarted() {
+		handshakesInFlight.increment();
+	}
+
+	public void handleHandshakeEnded() {
+		handshakesInFlight.decrement();
+	}
+
+	public void handleHandshakeTimeout() {
+		handshakeTimeouts.increment();
+	}
+
+	public void addHandshakeBytes(int bytes) {
+		handshakeBytes.add(bytes);
+	}
+
+	public void addPendingOutboundBytes(int bytes) {
+		pendingOutboundBytes.add(bytes);
+	}
+
+	public static int getBacklogBucket(long bytes) {
+		if (bytes <= 0l) {
+			return 0;
+		}
+		int bits = 64 - Long.numberOfLeadingZeros(bytes);
+		if (bits <= 10) {
+			return 1;
+		}
+		int i = ((bits - 11) >> 1) + 2;
+		return i < BACKLOG_BUCKETS ? i : BACKLOG_BUCKETS - 1;
+	}
+
+	public void addToBacklogBucket(int bucket) {
+		backlogHistogram[bucket].increment();
+	}
+
+	public void removeFromBacklogBucket(int bucket) {
+		backlogHistogram[bucket].decrement();
+	}
+
+	public void handleBacklogEviction() {
+		backlogEvictions.increment();
+	}
+
+	public void handleNBTViolation() {
+		nbtViolations.increment();
+	}
+
+	public void handleIdle(boolean idle) {
+		if (idle) {
+			idleConnections.increment();
+		} else {
+			idleConnections.decrement();
+		}
+	}
+
+	public long getHandshakesInFlight() {
+		return handshakesInFlight.sum();
+	}
+
+	public long getHandshakeBytes() {
+		return handshakeBytes.sum();
+	}
+
+	public long getHandshakeTimeouts() {
+		return handshakeTimeouts.sum();
+	}
+
+	public long getPendingOutboundBytes() {
+		return pendingOutboundBytes.sum();
+	}
+
+	public long getBacklogEvictions() {
+		return backlogEvictions.sum();
+	}
+
+	/**
+	 * Number of item NBT tags rejected for exceeding a size limit
+	 */
+	public long getNBTViolations() {
+		return nbtViolations.sum();
+	}
+
+	/**
+	 * Number of legacy connections that were compacted for being idle
+	 */
+	public long getIdleConnections() {
+		return idleConnections.sum();
+	}
+
+	/**
+	 * Number of legacy connections in each backlog bucket, see getBacklogBucket
+	 */
+	public long[] getBacklogHistogram() {
+		long[] ret = new long[BACKLOG_BUCKETS];
+		for (int i = 0; i < BACKLOG_BUCKETS; ++i) {
+			ret[i] = backlogHistogram[i].sum();
+		}
+		return ret;
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.netty.buffer.ByteBuf;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.zstream.HackedBufferedInputStream;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.zstream.ReusableGZIPInputStream;
+import net.lax1dude.eaglercraft.backend.server.api.nbt.INBTContext;
+
+/**
+ * Zlib contexts, streams and scratch buffers used by the codec, one instance
+ * per event loop thread (see RewindProtocol.getNatives) instead of one per
+ * player. The codec only uses them synchronously and never interleaves two
+ * calls on the same thread, so connections on a loop can take turns.
+ */
+public class RewindNatives {
+
+	private final RewindProtocol<?> rewind;
+
+	private INBTContext nbtContext;
+	private Deflater notDeflater;
+	private Inflater ungzipper;
+	private ReusableGZIPInputStream ungzipperStream;
+	private DataInputStream ungzipperStreamOuter;
+	private byte[] temp1;
+	private byte[] inflateBuffer;
+
+	RewindNatives(RewindProtocol<?> rewind) {
+		this.rewind = rewind;
+	}
+
+	public INBTContext getNBTContext() {
+		if (this.nbtContext == null) {
+			this.nbtContext = rewind.getServerAPI().getNBTHelper().createThreadContext(512);
+		}
+		return this.nbtContext;
+	}
+
+	public Deflater getNotDeflater() {
+		if (this.notDeflater == null) {
+			// Note: Always use compression level 0, websocket is already compressed!
+			this.notDeflater = new Deflater(0);
+		}
+		return this.notDeflater;
+	}
+
+	public Inflater getUnGZipper() {
+		if (this.ungzipper == null) {
+			this.ungzipper = new Inflater(true);
+		}
+		return this.ungzipper;
+	}
+
+	public DataInputStream createGZIPInputStream(ByteBuf buf, int limit) throws IOException {
+		if (this.ungzipperStream == null) {
+			this.ungzipperStream = new ReusableGZIPInputStream(getUnGZipper(), getTempBuffer1());
+			this.ungzipperStreamOuter = new DataInputStream(new HackedBufferedInputStream(ungzipperStream, 2048));
+		}
+		this.ungzipperStream.setInput(buf, limit);
+		return this.ungzipperStreamOuter;
+	}
+
+	public byte[] getTempBuffer1() {
+		if (this.temp1 == null) {
+			this.temp1 = new byte[1];
+		}
+		return this.temp1;
+	}
+
+	public byte[] getInflateBuffer() {
+		if (this.inflateBuffer == null) {
+			this.inflateBuffer = new byte[4096];
+		}
+		return this.inflateBuffer;
+	}
+
+	synchronized void release() {
+		if (notDeflater != null) {
+			notDeflater.end();
+			notDeflater = null;
+		}
+		if (ungzipper != null) {
+			ungzipper.end();
+			ungzipper = null;
+		}
+		ungzipperStream = null;
+		ungzipperStreamOuter = null;
+	}
+
+}
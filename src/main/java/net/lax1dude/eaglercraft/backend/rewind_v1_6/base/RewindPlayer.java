@@ -17,24 +17,18 @@
 package net.lax1dude.eaglercraft.backend.rewind_v1_6.base;
 
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.*;
 import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
-import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.zstream.HackedBufferedInputStream;
-import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.zstream.HackedBufferedOutputStream;
-import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.zstream.HackedDataOutputStream;
-import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.zstream.ReusableGZIPInputStream;
-import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.zstream.ReusableGZIPOutputStream;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.NBTTranscoder;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.WindowItemsTracker;
 import net.lax1dude.eaglercraft.backend.server.api.IComponentHelper;
 import net.lax1dude.eaglercraft.backend.server.api.IEaglerPlayer;
 import net.lax1dude.eaglercraft.backend.server.api.IEaglerXServerAPI;
 import net.lax1dude.eaglercraft.backend.server.api.collect.HPPC;
-import net.lax1dude.eaglercraft.backend.server.api.collect.IntSet;
 import net.lax1dude.eaglercraft.backend.server.api.collect.ObjectObjectMap;
 import net.lax1dude.eaglercraft.backend.server.api.nbt.INBTContext;
 import net.lax1dude.eaglercraft.backend.server.api.rewind.IMessageController;
@@ -43,6 +37,8 @@ import net.lax1dude.eaglercraft.v1_8.socket.protocol.pkt.server.SPacketVoiceSign
 
 public class RewindPlayer<PlayerObject> {
 
+	public static final int IDLE_TIME = Integer.getInteger("eaglerxrewind.idleTime", 60000);
+
 	private final RewindProtocol<PlayerObject> rewind;
 	private final IMessageController messageController;
 	private final IOutboundInjector outboundInjector;
@@ -50,20 +46,14 @@ public class RewindPlayer<PlayerObject> {
 	private final IRewindLogger logger;
 	private IEaglerPlayer<PlayerObject> eaglerPlayer;
 
-	private INBTContext nbtContext;
 	private IComponentHelper componentHelper;
 	private TabListTracker tabList;
 	private ObjectObjectMap<UUID, String> voiceGlobalMap;
 	private ObjectObjectMap<String, UUID> voiceGlobalMapInv;
-	private Deflater notDeflater;
-	private Deflater notGZipper;
-	private Inflater ungzipper;
-	private ReusableGZIPInputStream ungzipperStream;
-	private DataInputStream ungzipperStreamOuter;
-	private ReusableGZIPOutputStream gzipperStream;
-	private DataOutputStream gzipperStreamOuter;
+	private NBTTranscoder nbtTranscoder;
+	private WindowItemsTracker windowItems;
 
-	private final IntSet enchWindows;
+	private final WindowIdSet enchWindows = new WindowIdSet();
 
 	private double x = 0;
 	private double y = 0;
@@ -72,7 +62,14 @@ public class RewindPlayer<PlayerObject> {
 	private float pitch = 0;
 	private boolean isSneaking = false;
 
-	private byte[] temp1;
+	private long lastActivity = System.nanoTime();
+	private boolean idle = false;
+
+	private static final int ADMISSION_HANDSHAKE = 0;
+	private static final int ADMISSION_PLAY = 1;
+	private static final int ADMISSION_RELEASED = 2;
+
+	private int admissionState = ADMISSION_HANDSHAKE;
 
 	public RewindPlayer(RewindProtocol<PlayerObject> rewind, IMessageController messageController,
 			IOutboundInjector outboundInjector, Channel channel, String logName) {
@@ -81,7 +78,6 @@ public class RewindPlayer<PlayerObject> {
 		this.outboundInjector = outboundInjector;
 		this.channel = channel;
 		this.logger = rewind.logger().createSubLogger(logName);
-		this.enchWindows = rewind.getServerAPI().getHPPC().createIntHashSet();
 	}
 
 	public RewindProtocol<PlayerObject> getRewind() {
@@ -108,11 +104,23 @@ public class RewindPlayer<PlayerObject> {
 		return channel;
 	}
 
+	/**
+	 * Note: shared by every connection on the current event loop
+	 */
 	public INBTContext getNBTContext() {
-		if (this.nbtContext == null) {
-			this.nbtContext = rewind.getServerAPI().getNBTHelper().createThreadContext(512);
-		}
-		return this.nbtContext;
+		return rewind.getNatives().getNBTContext();
+	}
+
+	public Deflater getNotDeflater() {
+		return rewind.getNatives().getNotDeflater();
+	}
+
+	public DataInputStream createGZIPInputStream(ByteBuf buf, int limit) throws IOException {
+		return rewind.getNatives().createGZIPInputStream(buf, limit);
+	}
+
+	public byte[] getInflateBuffer() {
+		return rewind.getNatives().getInflateBuffer();
 	}
 
 	public IComponentHelper getComponentHelper() {
@@ -122,6 +130,10 @@ public class RewindPlayer<PlayerObject> {
 		return this.componentHelper;
 	}
 
+	public TabListTracker getTabListIfCreated() {
+		return this.tabList;
+	}
+
 	public TabListTracker getTabList() {
 		if (this.tabList == null) {
 			this.tabList = new TabListTracker(rewind.getServerAPI().getHPPC());
@@ -129,47 +141,27 @@ public class RewindPlayer<PlayerObject> {
 		return this.tabList;
 	}
 
-	public Deflater getNotDeflater() {
-		if (this.notDeflater == null) {
-			// Note: Always use compression level 0, websocket is already compressed!
-			this.notDeflater = new Deflater(0);
+	public NBTTranscoder getNBTTranscoder() {
+		if (this.nbtTranscoder == null) {
+			this.nbtTranscoder = new NBTTranscoder(this);
 		}
-		return this.notDeflater;
+		return this.nbtTranscoder;
 	}
 
-	public Deflater getNotGZipper() {
-		if (this.notGZipper == null) {
-			this.notGZipper = new Deflater(0, true);
+	public WindowItemsTracker getWindowItems() {
+		if (this.windowItems == null) {
+			this.windowItems = new WindowItemsTracker();
 		}
-		return this.notGZipper;
+		return this.windowItems;
 	}
 
-	public Inflater getUnGZipper() {
-		if (this.ungzipper == null) {
-			this.ungzipper = new Inflater(true);
-		}
-		return this.ungzipper;
-	}
-
-	public DataInputStream createGZIPInputStream(ByteBuf buf, int limit) throws IOException {
-		if (this.ungzipperStream == null) {
-			this.ungzipperStream = new ReusableGZIPInputStream(getUnGZipper(), getTempBuffer1());
-			this.ungzipperStreamOuter = new DataInputStream(new HackedBufferedInputStream(ungzipperStream, 2048));
+	public void invalidateWindowItems() {
+		if (this.windowItems != null) {
+			this.windowItems.invalidate();
 		}
-		this.ungzipperStream.setInput(buf, limit);
-		return this.ungzipperStreamOuter;
 	}
 
-	public DataOutputStream createGZIPOutputStream(ByteBuf buf) {
-		if (this.gzipperStream == null) {
-			this.gzipperStream = new ReusableGZIPOutputStream(getNotGZipper(), getTempBuffer1());
-			this.gzipperStreamOuter = new HackedDataOutputStream(new HackedBufferedOutputStream(gzipperStream, 2048));
-		}
-		this.gzipperStream.setOutput(buf);
-		return this.gzipperStreamOuter;
-	}
-
-	public IntSet getEnchWindows() {
+	public WindowIdSet getEnchWindows() {
 		return this.enchWindows;
 	}
 
@@ -204,6 +196,45 @@ public class RewindPlayer<PlayerObject> {
 		this.pitch = pitch;
 	}
 
+	/**
+	 * Called for inbound packets that show the player is not AFK
+	 */
+	public void handleActivity() {
+		lastActivity = System.nanoTime();
+		if (idle) {
+			idle = false;
+			rewind.getMetrics().handleIdle(false);
+		}
+	}
+
+	/**
+	 * Returns true once when the player has been inactive for IDLE_TIME, the
+	 * connection should then be compacted
+	 */
+	public boolean checkIdle() {
+		if (!idle && IDLE_TIME > 0 && (System.nanoTime() - lastActivity) / 1000000l >= IDLE_TIME) {
+			idle = true;
+			rewind.getMetrics().handleIdle(true);
+			return true;
+		}
+		return false;
+	}
+
+	public boolean isIdle() {
+		return idle;
+	}
+
+	/**
+	 * Drops per-player helpers that are recreated when they are needed again
+	 */
+	public void compact() {
+		nbtTranscoder = null;
+		windowItems = null;
+		if (tabList != null) {
+			tabList.compact();
+		}
+	}
+
 	public boolean isSneaking() {
 		return isSneaking;
 	}
@@ -212,13 +243,6 @@ public class RewindPlayer<PlayerObject> {
 		this.isSneaking = sneaking;
 	}
 
-	public byte[] getTempBuffer1() {
-		if (this.temp1 == null) {
-			this.temp1 = new byte[1];
-		}
-		return this.temp1;
-	}
-
 	public void releaseVoiceGlobalMap() {
 		voiceGlobalMap = null;
 		voiceGlobalMapInv = null;
@@ -253,15 +277,21 @@ public class RewindPlayer<PlayerObject> {
 
 	}
 
-	public void releaseNatives() {
-		if (notDeflater != null) {
-			notDeflater.end();
+	public void handleHandshakeFinished() {
+		if (admissionState == ADMISSION_HANDSHAKE) {
+			admissionState = ADMISSION_PLAY;
+			rewind.getAdmissionController().handleHandshakeFinished();
 		}
-		if (notGZipper != null) {
-			notGZipper.end();
+	}
+
+	public void handleConnectionClosed() {
+		if (idle) {
+			idle = false;
+			rewind.getMetrics().handleIdle(false);
 		}
-		if (ungzipper != null) {
-			ungzipper.end();
+		if (admissionState != ADMISSION_RELEASED) {
+			rewind.getAdmissionController().handleSessionClosed(admissionState == ADMISSION_HANDSHAKE);
+			admissionState = ADMISSION_RELEASED;
 		}
 	}
 
@@ -16,12 +16,24 @@
 
 package net.lax1dude.eaglercraft.backend.rewind_v1_6.base;
 
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.ChatComponentCache;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.ItemNBTCache;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.RewindChannelHandler;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.RewindCircuitBreaker;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.RewindHandshakeCodec;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.RewindMessageHandler;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.TranslationRegistry;
 import net.lax1dude.eaglercraft.backend.server.api.IEaglerConnection;
 import net.lax1dude.eaglercraft.backend.server.api.IEaglerPlayer;
 import net.lax1dude.eaglercraft.backend.server.api.IEaglerXServerAPI;
@@ -36,11 +48,39 @@ public class RewindProtocol<PlayerObject> implements IEaglerXRewindProtocol<Play
 	public static final UUID BRAND_EAGLERXREWIND_1_6_4 = UUID.fromString("65f7ac16-3354-4dfa-bd07-624922fd7962");
 
 	private final IRewindPlatform<PlayerObject> platform;
+	private final RewindAdmissionController admissionController;
+	private final RewindMetrics metrics;
+	private final RewindCircuitBreaker circuitBreaker;
+	private final ChatComponentCache chatCache;
+	private final ItemNBTCache itemNBTCache;
+	private final Set<RewindNatives> allNatives = ConcurrentHashMap.newKeySet();
+	private final FastThreadLocal<RewindNatives> natives = new FastThreadLocal<RewindNatives>() {
+
+		@Override
+		protected RewindNatives initialValue() {
+			RewindNatives ret = new RewindNatives(RewindProtocol.this);
+			allNatives.add(ret);
+			return ret;
+		}
+
+		@Override
+		protected void onRemoval(RewindNatives value) {
+			allNatives.remove(value);
+			value.release();
+		}
+
+	};
 
 	private IEaglerXServerAPI<PlayerObject> server;
 
 	public RewindProtocol(IRewindPlatform<PlayerObject> platform) {
 		this.platform = platform;
+		TranslationRegistry.init(platform.logger());
+		this.admissionController = new RewindAdmissionController();
+		this.metrics = new RewindMetrics();
+		this.circuitBreaker = new RewindCircuitBreaker(platform.logger());
+		this.chatCache = new ChatComponentCache();
+		this.itemNBTCache = new ItemNBTCache();
 	}
 
 	public IRewindPlatform<PlayerObject> getPlatform() {
@@ -55,6 +95,34 @@ public class RewindProtocol<PlayerObject> implements IEaglerXRewindProtocol<Play
 		return platform.logger();
 	}
 
+	public RewindAdmissionController getAdmissionController() {
+		return admissionController;
+	}
+
+	public RewindMetrics getMetrics() {
+		return metrics;
+	}
+
+	public RewindCircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public ChatComponentCache getChatCache() {
+		return chatCache;
+	}
+
+	public ItemNBTCache getItemNBTCache() {
+		return itemNBTCache;
+	}
+
+	/**
+	 * Returns the codec natives of the current thread, only use them on the
+	 * channel's event loop
+	 */
+	public RewindNatives getNatives() {
+		return natives.get();
+	}
+
 	@Override
 	public void handleRegistered(IEaglerXServerAPI<PlayerObject> server) {
 		// On startup
@@ -67,6 +135,11 @@ public class RewindProtocol<PlayerObject> implements IEaglerXRewindProtocol<Play
 	public void handleUnregistered(IEaglerXServerAPI<PlayerObject> server) {
 		// On shutdown
 		server.getBrandService().unregisterBrand(BRAND_EAGLERXREWIND_1_6_4);
+		// The event loops outlive the plugin, so onRemoval would never run
+		for (RewindNatives value : allNatives) {
+			allNatives.remove(value);
+			value.release();
+		}
 		logger().info("EaglerXRewind protocol for Eaglercraft 1.6.4 has been unregistered");
 	}
 
@@ -74,36 +147,68 @@ public class RewindProtocol<PlayerObject> implements IEaglerXRewindProtocol<Play
 	public void initializeConnection(int legacyProtocol,
 			IEaglerXRewindInitializer<RewindPlayer<PlayerObject>> initializer) {
 		IEaglerConnection eaglerConnection = initializer.getConnection();
-		IPacket2ClientProtocol legacyHandshake = initializer.getLegacyHandshake();
-		IMessageController messageController = initializer.requestMessageController();
-		IOutboundInjector outboundInjector = initializer.requestOutboundInjector();
-
 		String realAddr = eaglerConnection.getRealAddress();
-		if (realAddr == null) {
-			realAddr = eaglerConnection.getSocketAddress().toString();
+		SocketAddress sockAddr = null;
+		Object addrKey = realAddr;
+		if (addrKey == null) {
+			sockAddr = eaglerConnection.getSocketAddress();
+			addrKey = (sockAddr instanceof InetSocketAddress) ? ((InetSocketAddress) sockAddr).getAddress() : sockAddr;
 		}
 
-		RewindPlayer<PlayerObject> attachment = new RewindPlayer<>(this, messageController, outboundInjector,
-				initializer.netty().getChannel(), realAddr + "|" + legacyHandshake.getUsername());
-		initializer.setAttachment(attachment);
-
-		messageController.setOutboundHandler(new RewindMessageHandler(attachment));
-
-		initializer.netty().injectNettyHandlers((new RewindChannelHandler<PlayerObject>(attachment))
-				.setCodec(new RewindHandshakeCodec<>(legacyHandshake)));
+		int admission = admissionController.tryAdmit(addrKey);
+		if (admission != RewindAdmissionController.ADMITTED) {
+			// Keep the server from closing the channel before the kick is flushed
+			initializer.cancelDisconnect();
+			Channel channel = initializer.netty().getChannel();
+			channel.writeAndFlush(admissionController.getKickPacket(admission))
+					.addListener(ChannelFutureListener.CLOSE);
+			return;
+		}
 
-		initializer.rewriteInitialHandshakeV2(5, 47, "EaglerXRewind", "1.6.4", false,
-				legacyHandshake.getUsername().getBytes(StandardCharsets.US_ASCII));
+		RewindPlayer<PlayerObject> attachment = null;
+		try {
+			IPacket2ClientProtocol legacyHandshake = initializer.getLegacyHandshake();
+			IMessageController messageController = initializer.requestMessageController();
+			IOutboundInjector outboundInjector = initializer.requestOutboundInjector();
+
+			if (realAddr == null) {
+				realAddr = sockAddr.toString();
+			}
+
+			attachment = new RewindPlayer<>(this, messageController, outboundInjector,
+					initializer.netty().getChannel(), realAddr + "|" + legacyHandshake.getUsername());
+			initializer.setAttachment(attachment);
+
+			messageController.setOutboundHandler(new RewindMessageHandler(attachment));
+
+			initializer.netty().injectNettyHandlers((new RewindChannelHandler<PlayerObject>(attachment))
+					.setCodec(new RewindHandshakeCodec<>(legacyHandshake)));
+
+			initializer.rewriteInitialHandshakeV2(5, 47, "EaglerXRewind", "1.6.4", false,
+					legacyHandshake.getUsername().getBytes(StandardCharsets.US_ASCII));
+		} catch (RuntimeException | Error ex) {
+			// Release the admission, nothing else will if the handlers are missing
+			if (attachment != null) {
+				attachment.handleConnectionClosed();
+			} else {
+				admissionController.handleSessionClosed(true);
+			}
+			throw ex;
+		}
 	}
 
 	@Override
 	public void handleCreatePlayer(RewindPlayer<PlayerObject> attachment, IEaglerPlayer<PlayerObject> playerObj) {
-		attachment.handlePlayerCreate(playerObj);
+		if (attachment != null) {
+			attachment.handlePlayerCreate(playerObj);
+		}
 	}
 
 	@Override
 	public void handleDestroyPlayer(RewindPlayer<PlayerObject> attachment) {
-		attachment.handlePlayerDestroy();
+		if (attachment != null) {
+			attachment.handlePlayerDestroy();
+		}
 	}
 
 	@Override
@@ -16,10 +16,16 @@
 
 package net.lax1dude.eaglercraft.backend.rewind_v1_6.base;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.BufferUtils;
 import net.lax1dude.eaglercraft.backend.server.api.IEaglerXServerAPI;
 import net.lax1dude.eaglercraft.backend.server.api.collect.HPPC;
+import net.lax1dude.eaglercraft.backend.server.api.collect.ObjectIntMap;
 import net.lax1dude.eaglercraft.backend.server.api.collect.ObjectObjectMap;
 
 public class TabListTracker {
@@ -44,10 +50,22 @@ public class TabListTracker {
 
 	}
 
+	private static final int PENDING_REMOVE = Integer.MIN_VALUE;
+
+	private final HPPC hppc;
 	private final ObjectObjectMap<UUID, ListItem> playerUUIDToItem;
 	private final ObjectObjectMap<String, ListItem> playerNameToItem;
 
+	/**
+	 * The names and pings the legacy client is showing, and the changes to them
+	 * queued since the last flush
+	 */
+	private ObjectIntMap<String> clientList;
+	private ObjectIntMap<String> pendingPing;
+	private List<String> pendingNames;
+
 	public TabListTracker(HPPC hppc) {
+		this.hppc = hppc;
 		this.playerUUIDToItem = hppc.createObjectObjectHashMap(32);
 		this.playerNameToItem = hppc.createObjectObjectHashMap(32);
 	}
@@ -120,4 +138,81 @@ public class TabListTracker {
 		return itm;
 	}
 
+	public void compact() {
+		if (pendingNames != null && pendingNames.isEmpty()) {
+			pendingNames = null;
+			pendingPing = null;
+		}
+	}
+
+	/**
+	 * Queues showing the name with the ping in the legacy tab list
+	 */
+	public void queueAdd(String name, int ping) {
+		queue(name, ping);
+	}
+
+	public void queueRemove(String name) {
+		queue(name, PENDING_REMOVE);
+	}
+
+	private void queue(String name, int ping) {
+		if (name.length() > 16) {
+			name = name.substring(0, 16);
+		}
+		if (pendingPing == null) {
+			pendingPing = hppc.createObjectIntHashMap();
+			pendingNames = new ArrayList<>();
+		}
+		if (pendingPing.indexOf(name) < 0) {
+			pendingNames.add(name);
+		}
+		pendingPing.put(name, ping);
+	}
+
+	/**
+	 * Writes only the net changes to the client's tab list since the last call as
+	 * legacy 0xC9 packets in one buffer, a name that was added and removed again
+	 * or updated to the ping it already has is not sent at all
+	 */
+	public void drain(ByteBufAllocator alloc, List<Object> out) {
+		if (pendingNames == null || pendingNames.isEmpty()) {
+			return;
+		}
+		if (clientList == null) {
+			clientList = hppc.createObjectIntHashMap();
+		}
+		int cnt = pendingNames.size();
+		ByteBuf bb = alloc.buffer(cnt * 38);
+		try {
+			for (int i = 0; i < cnt; ++i) {
+				String name = pendingNames.get(i);
+				int ping = pendingPing.indexGet(pendingPing.indexOf(name));
+				int idx = clientList.indexOf(name);
+				if (ping == PENDING_REMOVE) {
+					if (idx >= 0) {
+						clientList.remove(name);
+						bb.writeByte(0xC9);
+						BufferUtils.writeLegacyMCString(bb, name, 16);
+						bb.writeBoolean(false);
+						bb.writeShort(0);
+					}
+				} else if (idx < 0 || clientList.indexGet(idx) != ping) {
+					clientList.put(name, ping);
+					bb.writeByte(0xC9);
+					BufferUtils.writeLegacyMCString(bb, name, 16);
+					bb.writeBoolean(true);
+					bb.writeShort(ping);
+				}
+			}
+			if (bb.isReadable()) {
+				out.add(bb.retain());
+			}
+		} finally {
+			bb.release();
+			pendingNames.clear();
+			pendingPing.clear();
+		}
+	}
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base;
+
+/**
+ * Set of window ids (0 - 255) stored as a 256 bit bitset, replaces a hash set
+ * that usually holds zero or one id
+ */
+public class WindowIdSet {
+
+	private long bits0;
+	private long bits1;
+	private long bits2;
+	private long bits3;
+
+	public void add(int windowId) {
+		long bit = 1l << windowId;
+		switch ((windowId >> 6) & 3) {
+		case 0:
+			bits0 |= bit;
+			break;
+		case 1:
+			bits1 |= bit;
+			break;
+		case 2:
+			bits2 |= bit;
+			break;
+		default:
+			bits3 |= bit;
+			break;
+		}
+	}
+
+	public void remove(int windowId) {
+		long bit = ~(1l << windowId);
+		switch ((windowId >> 6) & 3) {
+		case 0:
+			bits0 &= bit;
+			break;
+		case 1:
+			bits1 &= bit;
+			break;
+		case 2:
+			bits2 &= bit;
+			break;
+		default:
+			bits3 &= bit;
+			break;
+		}
+	}
+
+	public boolean contains(int windowId) {
+		long bits;
+		switch ((windowId >> 6) & 3) {
+		case 0:
+			bits = bits0;
+			break;
+		case 1:
+			bits = bits1;
+			break;
+		case 2:
+			bits = bits2;
+			break;
+		default:
+			bits = bits3;
+			break;
+		}
+		return (bits & (1l << windowId)) != 0l;
+	}
+
+	public void clear() {
+		bits0 = bits1 = bits2 = bits3 = 0l;
+	}
+
+}
@@ -22,8 +22,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.zip.Deflater;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
-import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.RewindPlayer;
 
 public class BufferUtils {
@@ -142,13 +141,72 @@ public class BufferUtils {
 		return 5;
 	}
 
+	/**
+	 * (l | (l + SWAR_ONES)) & SWAR_HIGH_BITS is non-zero if any of the 8 bytes in
+	 * l is 0x7F or above, which the UTF-8 decoder below doesn't treat as ASCII
+	 */
+	private static final long SWAR_HIGH_BITS = 0x8080808080808080l;
+	private static final long SWAR_ONES = 0x0101010101010101l;
+
+	/**
+	 * Chars of the long above 0x7F or 0xFF
+	 */
+	private static final long SWAR_NON_ASCII_CHARS = 0xFF80FF80FF80FF80l;
+	private static final long SWAR_NON_LATIN1_CHARS = 0xFF00FF00FF00FF00l;
+
+	/**
+	 * Spreads 4 bytes into 4 big endian UTF-16 chars
+	 */
+	private static long widenBytes(int i) {
+		long l = i & 0xFFFFFFFFl;
+		l = (l | (l << 16)) & 0x0000FFFF0000FFFFl;
+		return (l | (l << 8)) & 0x00FF00FF00FF00FFl;
+	}
+
+	/**
+	 * Packs 4 big endian UTF-16 chars no higher than 0xFF into 4 bytes
+	 */
+	private static int narrowChars(long l) {
+		l = (l | (l >>> 8)) & 0x0000FFFF0000FFFFl;
+		return (int) (l | (l >>> 16));
+	}
+
 	public static String readLegacyMCString(ByteBuf buffer, int maxLen) {
 		int len = buffer.readUnsignedShort();
 		if (len > maxLen) {
 			throw new IndexOutOfBoundsException("String too long");
 		}
+		int startAt = buffer.readerIndex();
+		byte[] latin1 = new byte[len];
+		int i = 0;
+		for (; i + 4 <= len; i += 4) {
+			long l = buffer.getLong(startAt + (i << 1));
+			if ((l & SWAR_NON_LATIN1_CHARS) != 0l) {
+				break;
+			}
+			int j = narrowChars(l);
+			latin1[i] = (byte) (j >>> 24);
+			latin1[i + 1] = (byte) (j >>> 16);
+			latin1[i + 2] = (byte) (j >>> 8);
+			latin1[i + 3] = (byte) j;
+		}
+		for (; i < len; ++i) {
+			char c = buffer.getChar(startAt + (i << 1));
+			if (c > 0xFF) {
+				break;
+			}
+			latin1[i] = (byte) c;
+		}
+		if (i == len) {
+			buffer.readerIndex(startAt + (len << 1));
+			return new String(latin1, StandardCharsets.ISO_8859_1);
+		}
 		char[] chars = new char[len];
-		for (int i = 0; i < len; ++i) {
+		for (int j = 0; j < i; ++j) {
+			chars[j] = (char) (latin1[j] & 0xFF);
+		}
+		buffer.readerIndex(startAt + (i << 1));
+		for (; i < len; ++i) {
 			chars[i] = buffer.readChar();
 		}
 		return new String(chars);
@@ -157,16 +215,52 @@ public class BufferUtils {
 	public static void writeLegacyMCString(ByteBuf buffer, String value, int maxLen) {
 		int len = value.length();
 		if (len > maxLen) {
-			value = value.substring(0, maxLen);
 			len = maxLen;
-			// throw new IndexOutOfBoundsException();
 		}
+		buffer.ensureWritable(2 + (len << 1));
 		buffer.writeShort(len);
-		for (int i = 0; i < len; ++i) {
+		int i = 0;
+		for (; i + 4 <= len; i += 4) {
+			buffer.writeLong(((long) value.charAt(i) << 48) | ((long) value.charAt(i + 1) << 32)
+					| ((long) value.charAt(i + 2) << 16) | value.charAt(i + 3));
+		}
+		for (; i < len; ++i) {
 			buffer.writeChar(value.charAt(i));
 		}
 	}
 
+	/**
+	 * Encodes a constant legacy string with its length prefix, so it can be
+	 * written with a single writeBytes
+	 */
+	public static byte[] encodeLegacyMCString(String value, int maxLen) {
+		int len = value.length();
+		if (len > maxLen) {
+			len = maxLen;
+		}
+		byte[] ret = new byte[2 + (len << 1)];
+		ret[0] = (byte) (len >>> 8);
+		ret[1] = (byte) len;
+		for (int i = 0, j = 2; i < len; ++i) {
+			char c = value.charAt(i);
+			ret[j++] = (byte) (c >>> 8);
+			ret[j++] = (byte) c;
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns an unreleasable read only Packet255KickDisconnect, write a
+	 * duplicate() of it
+	 */
+	public static ByteBuf createLegacyKickPacket(String msg) {
+		byte[] str = encodeLegacyMCString(msg, 256);
+		ByteBuf buf = Unpooled.buffer(1 + str.length, 1 + str.length);
+		buf.writeByte(0xFF);
+		buf.writeBytes(str);
+		return Unpooled.unreleasableBuffer(buf.asReadOnly());
+	}
+
 	public static String readMCString(ByteBuf buffer, int maxLen) {
 		int len = readVarInt(buffer);
 		if (len > maxLen * 4) {
@@ -206,6 +300,21 @@ public class BufferUtils {
 		int charsWritten = 0;
 		int cnt = 0;
 		while (cnt < len && charsRead <= maxInputLen) {
+			while (cnt + 8 <= len && charsWritten + 8 <= maxLen) {
+				long l = bufferIn.getLong(bufferIn.readerIndex());
+				if (((l | (l + SWAR_ONES)) & SWAR_HIGH_BITS) != 0l) {
+					break;
+				}
+				bufferIn.skipBytes(8);
+				bufferOut.writeLong(widenBytes((int) (l >>> 32)));
+				bufferOut.writeLong(widenBytes((int) l));
+				cnt += 8;
+				charsRead += 8;
+				charsWritten += 8;
+			}
+			if (cnt >= len || charsRead > maxInputLen) {
+				break;
+			}
 			int b = bufferIn.readUnsignedByte();
 			++cnt;
 			if (b < 127) {
@@ -283,8 +392,13 @@ public class BufferUtils {
 			throw new IndexOutOfBoundsException();
 		}
 		int startAt = bufferIn.readerIndex();
-		int utf8Length = 0;
-		for (int i = 0; i < len; ++i) {
+		int asciiPrefix = 0;
+		while (asciiPrefix + 4 <= len
+				&& (bufferIn.getLong(startAt + (asciiPrefix << 1)) & SWAR_NON_ASCII_CHARS) == 0l) {
+			asciiPrefix += 4;
+		}
+		int utf8Length = asciiPrefix;
+		for (int i = asciiPrefix; i < len; ++i) {
 			char c = bufferIn.getChar(startAt + (i << 1));
 			if (c <= 0x7F) {
 				++utf8Length;
@@ -302,7 +416,11 @@ public class BufferUtils {
 			}
 		}
 		BufferUtils.writeVarInt(bufferOut, utf8Length);
-		for (int i = 0; i < len; ++i) {
+		bufferOut.ensureWritable(utf8Length);
+		for (int i = 0; i < asciiPrefix; i += 4) {
+			bufferOut.writeInt(narrowChars(bufferIn.getLong(startAt + (i << 1))));
+		}
+		for (int i = asciiPrefix; i < len; ++i) {
 			char c = bufferIn.getChar(startAt + (i << 1));
 			if (c <= 0x7F) {
 				bufferOut.writeByte(c);
@@ -329,6 +447,18 @@ public class BufferUtils {
 		bufferIn.readerIndex(startAt + (len << 1));
 	}
 
+	/**
+	 * Returns the index after the 1.8 slot starting at i, without converting it
+	 */
+	public static int getSlotEnd(ByteBuf buffer, int i, RewindPlayer<?> context) {
+		short blockId = buffer.getShort(i);
+		i += 2;
+		if (convertItem2Legacy(blockId) == -1) {
+			return i;
+		}
+		return context.getNBTTranscoder().getTagEnd(buffer, i + 3, buffer.writerIndex());
+	}
+
 	public static void convertSlot2Legacy(ByteBuf buffer, ByteBuf bb, RewindPlayer<?> context) {
 		short blockId = buffer.readShort();
 		blockId = (short) convertItem2Legacy(blockId);
@@ -357,26 +487,7 @@ public class BufferUtils {
 	}
 
 	public static void convertNBT2Legacy(ByteBuf buffer, ByteBuf bb, RewindPlayer<?> context) {
-		if (buffer.readUnsignedByte() == 0) {
-			bb.writeShort(-1);
-			return;
-		}
-		buffer.readerIndex(buffer.readerIndex() - 1);
-		int wi = bb.writerIndex() + 2;
-		bb.ensureWritable(2);
-		bb.writerIndex(wi);
-
-		try (ByteBufInputStream bbis = new ByteBufInputStream(buffer);
-				DataOutputStream dos = context.createGZIPOutputStream(bb)) {
-
-			RewindNBTVisitor.apply(context.getNBTContext(), bbis, dos, context.getComponentHelper());
-
-			dos.close();
-
-			bb.setShort(wi - 2, bb.writerIndex() - wi);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+		context.getNBTTranscoder().convertNBT2Legacy(buffer, bb);
 	}
 
 	public static void convertLegacyNBT(ByteBuf buffer, ByteBuf bb, RewindPlayer<?> context) {
@@ -389,9 +500,8 @@ public class BufferUtils {
 		}
 		int oldEnd = buffer.writerIndex();
 		buffer.writerIndex(buffer.readerIndex() + len1);
-		try (DataInputStream gzipIs = context.createGZIPInputStream(buffer, 65535);
-				ByteBufOutputStream dos = new ByteBufOutputStream(bb)) {
-			RewindNBTVisitorReverse.apply(context.getNBTContext(), gzipIs, dos);
+		try (DataInputStream gzipIs = context.createGZIPInputStream(buffer, NBTTranscoder.MAX_INFLATED)) {
+			context.getNBTTranscoder().convertLegacyNBT(gzipIs, bb);
 		} catch (IOException ex) {
 			throw new RuntimeException(ex);
 		}
@@ -494,348 +604,16 @@ public class BufferUtils {
 		return ((long) (x & 0x3FFFFFF) << 38) | ((long) (y & 0xFFF) << 26) | (z & 0x3FFFFFF);
 	}
 
-	public static String convertMetadata2Legacy(ByteBuf buffer, ByteBuf bb, int entityType, RewindPlayer<?> context) {
-		String playerNameWowie = null;
-
-		if (entityType == -1) {
-			bb.writeByte(0x7F);
-			return null;
-		}
-		while (true) {
-			int item = buffer.readUnsignedByte();
-			if (item == 0x7F) {
-				bb.writeByte(item);
-				break;
-			}
-			int index = item & 0x1F;
-			int type = item >> 5;
-			if (type == 7) {
-				buffer.readFloat();
-				buffer.readFloat();
-				buffer.readFloat();
-				continue;
-			}
-			switch (type) {
-			case 0:
-				remapMeta(entityType, index, type, bb, buffer.readByte());
-				break;
-			case 1:
-				remapMeta(entityType, index, type, bb, buffer.readShort());
-				break;
-			case 2:
-				remapMeta(entityType, index, type, bb, buffer.readInt());
-				break;
-			case 3:
-				remapMeta(entityType, index, type, bb, buffer.readFloat());
-				break;
-			case 4:
-				PlayerNameHolder playerNameHolder = entityType == 300 ? new PlayerNameHolder() : null;
-				remapMeta(entityType, index, type, bb, BufferUtils.readMCString(buffer, 32767), playerNameHolder);
-				if (playerNameHolder != null) {
-					playerNameWowie = playerNameHolder.name;
-				}
-				break;
-			case 5:
-				ByteBuf tmp = context.getChannel().alloc().buffer();
-				try {
-					BufferUtils.convertSlot2Legacy(buffer, tmp, context);
-					remapMeta(entityType, index, type, bb, tmp);
-				} finally {
-					tmp.release();
-				}
-				break;
-			case 6:
-				remapMeta(entityType, index, type, bb,
-						new int[] { buffer.readInt(), buffer.readInt(), buffer.readInt() });
-				break;
-			}
-		}
-		if (bb.getByte(bb.writerIndex() - 1) != 0x7F) {
-			bb.writeByte(0x7F);
-		}
-
-		return playerNameWowie;
-	}
-
-	private static final class PlayerNameHolder {
-		public String name;
-	}
-
-	private static void remapMeta(int entityType, int index, int entryType, ByteBuf bb, Object entryValue) {
-		remapMeta(entityType, index, entryType, bb, entryValue, null);
-	}
-
-	private static void remapMeta(int entityType, int index, int entryType, ByteBuf bb, Object entryValue, PlayerNameHolder playerNameHolder) {
-		boolean mobNotObject = entityType >= 100 && entityType <= 300;
-		if (entityType >= 300) {
-			entityType -= 300;
-		} else if (entityType >= 100) {
-			entityType -= 100;
-		}
-		/**
-		 * If Object:
-		 * 91 = Painting
-		 * 92 = Experience orb
-		 * 93 = Lightning Bolt
-		 * If Mob:
-		 * 0 = Player
-		 * All else follows wiki.vg
-		 */
-		if (index == 2 && entryType == 4) {
-			index = 5;
-			if (entityType == 0 && playerNameHolder != null) {
-				playerNameHolder.name = (String) entryValue;
-			}
-		} else if (index == 3 && entryType == 0) {
-			index = 6;
-		} else if (index == 7 && entryType == 2) {
-			index = 8;
-		} else if (index == 8 && entryType == 0) {
-			index = 9;
-		} else if (!mobNotObject && entityType != 71 && (index == 9 || index == 15) && entryType == 0) {
-			return;
-		} else if (entityType != 54 && index == 12 && entryType == 0) {
-			entryType = 2;
-			entryValue = (int) (byte) entryValue;
-		} else if (mobNotObject) {
-			if (entityType == 0 && index == 9 && entryType == 0) {
-				index = 10;
-			} else if (entityType == 0
-					&& (((index == 10 || index == 16) && entryType == 0) || (index == 17 && entryType == 3))) {
-				return;
-			} else if (entityType == 0 && index == 18 && entryType == 2) {
-				return;
-			} else if (entityType == 54 && index == 14 && entryType == 0) {
-				return;
-			} else if (entityType == 58 && index == 16 && entryType == 1) {
-				entryType = 0;
-				entryValue = (byte) (short) entryValue;
-			} else if (entityType == 60 || entityType == 94) {
-				return;
-			} else if ((entityType == 63 || entityType == 64) && index == 6 && entryType == 3) {
-				index = 16;
-				entryType = 2;
-				entryValue = (int) (float) entryValue;
-			} else if (entityType == 66 && index == 21 && entryType == 0) {
-				return;
-			} else if (entityType == 95 && (index == 18 || index == 6) && entryType == 3) {
-				index = 18;
-				entryType = 2;
-				entryValue = (int) (float) entryValue;
-			} else if (index == 16 && entryType == 2) {
-				entryType = 0;
-				entryValue = (byte) (int) entryValue;
-			} else if (index == 6 && entryType == 3) {
-				return;
-			}
-		} else {
-			if ((entityType == 1 || entityType == 10 || entityType == 11 || entityType == 12) && index == 19
-					&& entryType == 3) {
-				entryType = 2;
-				entryValue = (int) (float) entryValue;
-			} else if (entityType == 51 && index == 8 && entryType == 2) {
-				return;
-			} else if (entityType == 60 && index == 16 && entryType == 0) {
-				entryValue = (byte) 0;
-			} else if (entityType == 71 && index == 8 && entryType == 5) {
-				index = 2;
-			} else if (entityType == 71 && index == 9 && entryType == 0) {
-				index = 3;
-				entryValue = (byte) (((int) (byte) entryValue) >> 1);
-			} else if (entityType == 77 || entityType == 78 || entityType == 90) {
-				return;
-			} else if (entityType == 10 && index == 20 && entryType == 2) {
-				int id = ((int) entryValue) & 0xFFFF;
-				int data = ((int) entryValue) >> 12;
-				entryValue = (data << 16) | id;
-			}
-		}
-
-		bb.writeByte((entryType << 5) | index);
-		switch (entryType) {
-		case 0:
-			bb.writeByte((byte) entryValue);
-			break;
-		case 1:
-			bb.writeShort((short) entryValue);
-			break;
-		case 2:
-			bb.writeInt((int) entryValue);
-			break;
-		case 3:
-			bb.writeFloat((float) entryValue);
-			break;
-		case 4:
-			BufferUtils.writeLegacyMCString(bb, (String) entryValue, 64);
-			break;
-		case 5:
-			bb.writeBytes((ByteBuf) entryValue);
-			break;
-		case 6:
-			int[] fard = (int[]) entryValue;
-			bb.writeInt(fard[0]);
-			bb.writeInt(fard[1]);
-			bb.writeInt(fard[2]);
-			break;
-		}
-	}
-
 	public static int convertItem2Legacy(int item) {
-		item = convertType2Legacy(item);
-		switch (item) {
-		case 409:
-			return 318;
-		case 410:
-			return 289;
-		case 411:
-			return 365;
-		case 412:
-		case 423:
-		case 424:
-			return 366;
-		case 413:
-			return 282;
-		case 414:
-			return 376;
-		case 415:
-			return 334;
-		case 416:
-		case 420:
-		case 421:
-			return 280;
-		case 425:
-			return 323;
-		case 427:
-		case 428:
-		case 429:
-		case 430:
-		case 431:
-			return 324;
-		case 422:
-			return 328;
-		case 417:
-		case 418:
-		case 419:
-			return 329;
-		}
-		return item;
+		return TranslationRegistry.get().getItem(item);
 	}
 
 	public static int convertType2Legacy(int type) {
-		switch (type) {
-		case 165:
-			return 133;
-		case 166:
-		case 95:
-			return 20;
-		case 167:
-			return 96;
-		case 168:
-			return 48;
-		case 169:
-			return 89;
-		case 176:
-			return 63;
-		case 177:
-			return 68;
-		case 179:
-			return 24;
-		case 180:
-			return 128;
-		case 181:
-			return 43;
-		case 182:
-			return 44;
-		case 183:
-		case 184:
-		case 185:
-		case 186:
-		case 187:
-			return 107;
-		case 188:
-		case 189:
-		case 190:
-		case 191:
-		case 192:
-			return 85;
-		case 193:
-		case 194:
-		case 195:
-		case 196:
-		case 197:
-			return 64;
-		case 178:
-			return 151;
-		case 160:
-			return 102;
-		case 161:
-			return 18;
-		case 162:
-			return 17;
-		case 163:
-		case 164:
-			return 53;
-		case 174:
-			return 80;
-		case 175:
-			return 38;
-		case 159:
-			return 82;
-		case 170:
-			return 1;
-		case 171:
-			return 70;
-		case 172:
-			return 82;
-		case 173:
-			return 1;
-		}
-		return type;
+		return TranslationRegistry.get().getType(type);
 	}
 
 	public static byte convertMapColor2Legacy(byte color) {
-		int realColor = (color & 0xFF) >> 2;
-		switch (realColor) {
-		case 14:
-			realColor = 8;
-			break;
-		case 15:
-		case 26:
-		case 34:
-		case 36:
-			realColor = 10;
-			break;
-		case 16:
-		case 17:
-		case 23:
-		case 24:
-		case 25:
-		case 31:
-		case 32:
-			realColor = 5;
-			break;
-		case 18:
-		case 30:
-			realColor = 2;
-			break;
-		case 19:
-			realColor = 1;
-			break;
-		case 20:
-		case 28:
-		case 35:
-			realColor = 4;
-			break;
-		case 21:
-		case 22:
-		case 29:
-			realColor = 11;
-			break;
-		case 27:
-		case 33:
-			realColor = 7;
-		}
-		return (byte) ((realColor << 2) + (color & 0b11));
+		return (byte) ((TranslationRegistry.get().getMapColor((color & 0xFF) >> 2) << 2) + (color & 0b11));
 	}
 
 	public static int convertTypeMeta2Legacy(int typeMeta) {
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.buffer.ByteBuf;
+import net.lax1dude.eaglercraft.backend.server.api.IComponentHelper;
+
+/**
+ * Shared by all connections, caches JSON chat components converted to legacy
+ * section strings so a broadcast is only converted once. Entries are keyed by a
+ * hash of the UTF-8 bytes and compared byte for byte, so a hit never has to
+ * decode the JSON into a String. Components that fail to convert are cached
+ * too, with the original JSON as their value.
+ */
+public class ChatComponentCache {
+
+	public static final int CACHE_SIZE = Integer.getInteger("eaglerxrewind.chatCacheSize", 4096);
+	public static final int MAX_KEY_LENGTH = Integer.getInteger("eaglerxrewind.chatCacheMaxLength", 8192);
+
+	private static final int STRIPES = 16;
+
+	private static class Entry {
+
+		private final byte[] key;
+		private final String value;
+
+		private Entry(byte[] key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+
+	}
+
+	private static class Stripe extends LinkedHashMap<Long, Entry> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+
+		private Stripe(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+			return size() > maxSize;
+		}
+
+	}
+
+	private final Stripe[] stripes;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder streamed = new LongAdder();
+
+	public ChatComponentCache() {
+		if (CACHE_SIZE > 0) {
+			int perStripe = (CACHE_SIZE + STRIPES - 1) / STRIPES;
+			stripes = new Stripe[STRIPES];
+			for (int i = 0; i < STRIPES; ++i) {
+				stripes[i] = new Stripe(perStripe);
+			}
+		} else {
+			stripes = null;
+		}
+	}
+
+	/**
+	 * Reads a 1.8 string like BufferUtils.readMCString and converts it to a legacy
+	 * section string, returns the JSON as is if it cannot be converted
+	 */
+	public String readAndConvert(ByteBuf in, int maxLen, IComponentHelper helper) {
+		int len = BufferUtils.readVarInt(in);
+		if (len > maxLen * 4) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (stripes == null || len > MAX_KEY_LENGTH) {
+			return convertUncached(readString(in, len, maxLen), helper);
+		}
+		int start = in.readerIndex();
+		checkLength(in, start, len, maxLen);
+		long hash = hash(in, start, len);
+		Entry e = lookup(hash, in, start, len);
+		if (e != null) {
+			in.skipBytes(len);
+			return e.value;
+		}
+		byte[] bytes = new byte[len];
+		in.getBytes(start, bytes);
+		String ret = convertUncached(readString(in, len, maxLen), helper);
+		store(hash, new Entry(bytes, ret));
+		return ret;
+	}
+
+	/**
+	 * Reads a 1.8 string and writes it to out as a legacy string of at most
+	 * maxOutLen chars. Text components are converted by LegacyChatConverter
+	 * straight from the input bytes, anything else goes through the API helper.
+	 */
+	public void convertToLegacy(ByteBuf in, int maxLen, ByteBuf out, int maxOutLen, IComponentHelper helper) {
+		int len = BufferUtils.readVarInt(in);
+		if (len > maxLen * 4) {
+			throw new IndexOutOfBoundsException();
+		}
+		int start = in.readerIndex();
+		checkLength(in, start, len, maxLen);
+		boolean cache = stripes != null && len <= MAX_KEY_LENGTH;
+		long hash = 0l;
+		if (cache) {
+			hash = hash(in, start, len);
+			Entry e = lookup(hash, in, start, len);
+			if (e != null) {
+				in.skipBytes(len);
+				BufferUtils.writeLegacyMCString(out, e.value, maxOutLen);
+				return;
+			}
+		}
+		int outStart = out.writerIndex();
+		if (LegacyChatConverter.convert(in, start, len, out, cache ? 32767 : maxOutLen)) {
+			streamed.increment();
+			if (cache) {
+				byte[] bytes = new byte[len];
+				in.getBytes(start, bytes);
+				int chars = out.getUnsignedShort(outStart);
+				store(hash, new Entry(bytes, out.toString(outStart + 2, chars << 1, StandardCharsets.UTF_16BE)));
+				if (chars > maxOutLen) {
+					out.setShort(outStart, maxOutLen);
+					out.writerIndex(outStart + 2 + (maxOutLen << 1));
+				}
+			}
+			in.skipBytes(len);
+			return;
+		}
+		byte[] bytes = cache ? new byte[len] : null;
+		if (cache) {
+			in.getBytes(start, bytes);
+		}
+		String ret = convertUncached(readString(in, len, maxLen), helper);
+		if (cache) {
+			store(hash, new Entry(bytes, ret));
+		}
+		BufferUtils.writeLegacyMCString(out, ret, maxOutLen);
+	}
+
+	/**
+	 * Converts a JSON string that was already decoded, such as a book page
+	 */
+	public String convert(String json, IComponentHelper helper) {
+		if (stripes == null || json.length() > MAX_KEY_LENGTH) {
+			return convertUncached(json, helper);
+		}
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_KEY_LENGTH) {
+			return convertUncached(json, helper);
+		}
+		long hash = hash(bytes);
+		Stripe stripe = stripes[(int) (hash >>> 60)];
+		Entry e;
+		synchronized (stripe) {
+			e = stripe.get(hash);
+		}
+		if (e != null && Arrays.equals(e.key, bytes)) {
+			hits.increment();
+			return e.value;
+		}
+		misses.increment();
+		String ret = convertUncached(json, helper);
+		store(hash, new Entry(bytes, ret));
+		return ret;
+	}
+
+	private Entry lookup(long hash, ByteBuf in, int start, int len) {
+		Stripe stripe = stripes[(int) (hash >>> 60)];
+		Entry e;
+		synchronized (stripe) {
+			e = stripe.get(hash);
+		}
+		if (e != null && equals(e.key, in, start, len)) {
+			hits.increment();
+			return e;
+		}
+		misses.increment();
+		return null;
+	}
+
+	private void store(long hash, Entry e) {
+		Stripe stripe = stripes[(int) (hash >>> 60)];
+		synchronized (stripe) {
+			stripe.put(hash, e);
+		}
+	}
+
+	private String convertUncached(String json, IComponentHelper helper) {
+		try {
+			return helper.convertJSONToLegacySection(json);
+		} catch (IllegalArgumentException ex) {
+			failures.increment();
+			return json;
+		}
+	}
+
+	/**
+	 * Checks the UTF-16 length of the UTF-8 input without decoding it, like
+	 * readMCString does, only needed when there are more bytes than maxLen
+	 */
+	private static void checkLength(ByteBuf in, int start, int len, int maxLen) {
+		if (len <= maxLen) {
+			return;
+		}
+		int chars = 0;
+		for (int i = start, end = start + len; i < end; ++i) {
+			int b = in.getByte(i) & 0xFF;
+			if ((b & 0xC0) != 0x80) {
+				chars += b >= 0xF0 ? 2 : 1;
+			}
+		}
+		if (chars > maxLen) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	private static String readString(ByteBuf in, int len, int maxLen) {
+		CharSequence ret = BufferUtils.readCharSequence(in, len, StandardCharsets.UTF_8);
+		if (ret.length() > maxLen) {
+			throw new IndexOutOfBoundsException();
+		}
+		return ret.toString();
+	}
+
+	static long hash(ByteBuf in, int start, int len) {
+		long h = 0x9E3779B97F4A7C15L ^ len;
+		int end = start + len;
+		int i = start;
+		for (; i + 8 <= end; i += 8) {
+			h = mix(h, in.getLong(i));
+		}
+		long tail = 0l;
+		for (; i < end; ++i) {
+			tail = (tail << 8) | (in.getByte(i) & 0xFF);
+		}
+		return finish(mix(h, tail));
+	}
+
+	private static long hash(byte[] in) {
+		int len = in.length;
+		long h = 0x9E3779B97F4A7C15L ^ len;
+		int i = 0;
+		for (; i + 8 <= len; i += 8) {
+			long l = 0l;
+			for (int j = 0; j < 8; ++j) {
+				l = (l << 8) | (in[i + j] & 0xFF);
+			}
+			h = mix(h, l);
+		}
+		long tail = 0l;
+		for (; i < len; ++i) {
+			tail = (tail << 8) | (in[i] & 0xFF);
+		}
+		return finish(mix(h, tail));
+	}
+
+	private static long mix(long h, long l) {
+		h ^= l * 0xC2B2AE3D27D4EB4FL;
+		return Long.rotateLeft(h, 31) * 0x9E3779B97F4A7C15L;
+	}
+
+	private static long finish(long h) {
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	static boolean equals(byte[] key, ByteBuf in, int start, int len) {
+		if (key.length != len) {
+			return false;
+		}
+		for (int i = 0; i < len; ++i) {
+			if (key[i] != in.getByte(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getFailureCount() {
+		return failures.sum();
+	}
+
+	/**
+	 * Misses converted by LegacyChatConverter instead of the API helper
+	 */
+	public long getStreamedCount() {
+		return streamed.sum();
+	}
+
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total > 0l ? (double) h / total : 0.0;
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * Per-connection budget for cosmetic packets (particles, sounds and block break
+ * animations), particles are held until the next flush so duplicates at the
+ * same block can be merged into one packet with a summed count
+ */
+public class EffectsLimiter {
+
+	public static final boolean ENABLED = !Boolean.getBoolean("eaglerxrewind.disableEffectsLimiter");
+	public static final int PER_FLUSH = Integer.getInteger("eaglerxrewind.effectsPerFlush", 64);
+	public static final int PER_SECOND = Integer.getInteger("eaglerxrewind.effectsPerSecond", 400);
+	public static final int SOUND_DISTANCE = Integer.getInteger("eaglerxrewind.soundDistance", 64);
+
+	private int flushCount = 0;
+	private double tokens = PER_SECOND;
+	private long lastRefill = System.nanoTime();
+
+	private int pendingCount = 0;
+	private byte[][] pendingNames = new byte[8][];
+	private int[] pendingCoords = new int[8 * 3];
+	private float[] pendingFloats = new float[8 * 7];
+	private int[] pendingCounts = new int[8];
+
+	/**
+	 * Takes one effect from the budget, returns false if it should be dropped
+	 */
+	public boolean allowEffect() {
+		if (PER_FLUSH > 0 && flushCount >= PER_FLUSH) {
+			return false;
+		}
+		if (PER_SECOND > 0) {
+			long now = System.nanoTime();
+			double t = tokens + (now - lastRefill) * (PER_SECOND / 1000000000.0);
+			lastRefill = now;
+			if (t > PER_SECOND) {
+				t = PER_SECOND;
+			}
+			if (t < 1.0) {
+				tokens = t;
+				return false;
+			}
+			tokens = t - 1.0;
+		}
+		++flushCount;
+		return true;
+	}
+
+	public boolean allowSound(double x, double y, double z, double px, double py, double pz) {
+		if (SOUND_DISTANCE > 0) {
+			double dx = x - px;
+			double dy = y - py;
+			double dz = z - pz;
+			if (dx * dx + dy * dy + dz * dz > (double) SOUND_DISTANCE * SOUND_DISTANCE) {
+				return false;
+			}
+		}
+		return allowEffect();
+	}
+
+	/**
+	 * The name must be a pre-encoded array from LegacyEffectNames, floats are x,
+	 * y, z, offset x, y, z and speed as in the packet
+	 */
+	public void handleParticle(byte[] name, float x, float y, float z, float ox, float oy, float oz, float speed,
+			int count) {
+		int cx = (int) Math.floor(x);
+		int cy = (int) Math.floor(y);
+		int cz = (int) Math.floor(z);
+		int[] coords = pendingCoords;
+		for (int i = 0, j = 0; i < pendingCount; ++i, j += 3) {
+			if (coords[j] == cx && coords[j + 1] == cy && coords[j + 2] == cz) {
+				byte[] other = pendingNames[i];
+				if (other == name || Arrays.equals(other, name)) {
+					long l = (long) pendingCounts[i] + count;
+					pendingCounts[i] = l > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) l;
+					return;
+				}
+			}
+		}
+		if (!allowEffect()) {
+			return;
+		}
+		int i = pendingCount++;
+		if (i == pendingNames.length) {
+			int newLen = i << 1;
+			pendingNames = Arrays.copyOf(pendingNames, newLen);
+			pendingCoords = Arrays.copyOf(pendingCoords, newLen * 3);
+			pendingFloats = Arrays.copyOf(pendingFloats, newLen * 7);
+			pendingCounts = Arrays.copyOf(pendingCounts, newLen);
+			coords = pendingCoords;
+		}
+		pendingNames[i] = name;
+		coords[i * 3] = cx;
+		coords[i * 3 + 1] = cy;
+		coords[i * 3 + 2] = cz;
+		float[] floats = pendingFloats;
+		int j = i * 7;
+		floats[j] = x;
+		floats[j + 1] = y;
+		floats[j + 2] = z;
+		floats[j + 3] = ox;
+		floats[j + 4] = oy;
+		floats[j + 5] = oz;
+		floats[j + 6] = speed;
+		pendingCounts[i] = count;
+	}
+
+	/**
+	 * Shrinks the pending particle arrays back to their initial size if nothing
+	 * is pending
+	 */
+	public void compact() {
+		if (pendingCount == 0 && pendingNames.length > 8) {
+			pendingNames = new byte[8][];
+			pendingCoords = new int[8 * 3];
+			pendingFloats = new float[8 * 7];
+			pendingCounts = new int[8];
+		}
+	}
+
+	/**
+	 * Writes the merged particles and resets the per-flush budget
+	 */
+	public void drain(ByteBufAllocator alloc, List<Object> out) {
+		flushCount = 0;
+		int cnt = pendingCount;
+		if (cnt == 0) {
+			return;
+		}
+		pendingCount = 0;
+		int size = 0;
+		for (int i = 0; i < cnt; ++i) {
+			size += pendingNames[i].length + 33;
+		}
+		ByteBuf bb = alloc.buffer(size);
+		try {
+			float[] floats = pendingFloats;
+			for (int i = 0, j = 0; i < cnt; ++i) {
+				bb.writeByte(0x3F);
+				bb.writeBytes(pendingNames[i]);
+				pendingNames[i] = null;
+				for (int k = 0; k < 7; ++k) {
+					bb.writeFloat(floats[j++]);
+				}
+				bb.writeInt(pendingCounts[i]);
+			}
+			bb.retain();
+		} finally {
+			bb.release();
+		}
+		out.add(bb);
+	}
+
+}
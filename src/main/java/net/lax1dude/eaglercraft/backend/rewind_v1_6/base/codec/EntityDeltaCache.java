@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Remembers the last metadata entries and equipment sent to the legacy client
+ * for each entity so unchanged values don't have to be sent again. Entries of
+ * up to 7 bytes are stored exactly, longer ones as a 64 bit hash. The slot of
+ * each entity is stored in the EntityTable
+ */
+public class EntityDeltaCache {
+
+	public static final boolean ENABLED = !Boolean.getBoolean("eaglerxrewind.disableDeltaSuppression");
+
+	private static final int META_ENTRIES = 32;
+	private static final int EQUIPMENT_SLOTS = 5;
+	private static final int RAW_META = META_ENTRIES + EQUIPMENT_SLOTS;
+	private static final int STRIDE = RAW_META + 1;
+
+	private static final int INITIAL_SLOTS = 16;
+
+	private static final int[] EMPTY_INTS = new int[0];
+	private static final long[] EMPTY_LONGS = new long[0];
+
+	private int count = 0;
+	private int freeCount = 0;
+	private int[] freeSlots;
+	private long[] values;
+	private long[] present;
+
+	public EntityDeltaCache() {
+		alloc();
+	}
+
+	/**
+	 * The arrays start empty and are allocated by the first spawned entity
+	 */
+	private void alloc() {
+		this.values = EMPTY_LONGS;
+		this.present = EMPTY_LONGS;
+		this.freeSlots = EMPTY_INTS;
+	}
+
+	public int allocSlot() {
+		int i;
+		if (freeCount > 0) {
+			i = freeSlots[--freeCount];
+		} else {
+			i = count++;
+			if (i == present.length) {
+				int cap = i > 0 ? i << 1 : INITIAL_SLOTS;
+				long[] tmp = new long[cap];
+				System.arraycopy(present, 0, tmp, 0, i);
+				present = tmp;
+				tmp = new long[cap * STRIDE];
+				System.arraycopy(values, 0, tmp, 0, i * STRIDE);
+				values = tmp;
+			}
+		}
+		present[i] = 0l;
+		return i;
+	}
+
+	public void freeSlot(int slot) {
+		if (freeCount == freeSlots.length) {
+			int[] tmp = new int[freeCount > 0 ? freeCount << 1 : INITIAL_SLOTS];
+			System.arraycopy(freeSlots, 0, tmp, 0, freeCount);
+			freeSlots = tmp;
+		}
+		freeSlots[freeCount++] = slot;
+		if (freeCount == count && count > INITIAL_SLOTS) {
+			reset();
+		}
+	}
+
+	/**
+	 * Call if a translated packet could not be sent, or the entity was spawned
+	 * again
+	 */
+	public void invalidate(int slot) {
+		present[slot] = 0l;
+	}
+
+	public void reset() {
+		count = 0;
+		freeCount = 0;
+		alloc();
+	}
+
+	private boolean update(int slot, int field, long value) {
+		long bit = 1l << field;
+		int idx = slot * STRIDE + field;
+		if ((present[slot] & bit) != 0l && values[idx] == value) {
+			return false;
+		}
+		present[slot] |= bit;
+		values[idx] = value;
+		return true;
+	}
+
+	/**
+	 * Takes the legacy entry written to bb starting at start, returns false if
+	 * the client already has the same value
+	 */
+	public boolean checkMetadataEntry(int slot, ByteBuf bb, int start) {
+		return update(slot, bb.getByte(start) & 0x1F, key(bb, start, bb.writerIndex()));
+	}
+
+	/**
+	 * Takes the remaining bytes of a 1.8 metadata packet before it is translated,
+	 * returns false if it is identical to the last one
+	 */
+	public boolean checkRawMetadata(int slot, ByteBuf in) {
+		return update(slot, RAW_META, key(in, in.readerIndex(), in.writerIndex()));
+	}
+
+	/**
+	 * Takes the remaining bytes of a 1.8 equipment packet (the item) before it is
+	 * translated, returns false if the slot already has the same item
+	 */
+	public boolean checkEquipment(int slot, int equipmentSlot, ByteBuf in) {
+		if (equipmentSlot < 0 || equipmentSlot >= EQUIPMENT_SLOTS) {
+			return true;
+		}
+		return update(slot, META_ENTRIES + equipmentSlot, key(in, in.readerIndex(), in.writerIndex()));
+	}
+
+	private static long key(ByteBuf buf, int start, int end) {
+		int len = end - start;
+		if (len <= 7) {
+			long k = (long) len << 56;
+			for (int i = start; i < end; ++i) {
+				k = (k & 0xFF00000000000000l) | ((k << 8) & 0x00FFFFFFFFFFFFFFl) | (buf.getByte(i) & 0xFF);
+			}
+			return k;
+		}
+		long h = 0xCBF29CE484222325l ^ len;
+		int i = start;
+		for (; i + 8 <= end; i += 8) {
+			h = (h ^ buf.getLong(i)) * 0x100000001B3l;
+			h ^= h >>> 29;
+		}
+		for (; i < end; ++i) {
+			h = (h ^ buf.getByte(i)) * 0x100000001B3l;
+		}
+		return h | 0x8000000000000000l;
+	}
+
+}
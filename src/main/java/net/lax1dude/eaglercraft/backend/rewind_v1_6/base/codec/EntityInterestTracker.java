@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import net.lax1dude.eaglercraft.backend.server.api.collect.HPPC;
+import net.lax1dude.eaglercraft.backend.server.api.collect.IntIntMap;
+
+/**
+ * Hides entities from the legacy client while they are further than the
+ * configured radius from the player, their spawn packet and the latest
+ * metadata, equipment and vehicle are kept so they can be spawned again when
+ * they come back into range
+ */
+public class EntityInterestTracker {
+
+	/**
+	 * In blocks, 0 to disable
+	 */
+	public static final int RADIUS = Integer.getInteger("eaglerxrewind.entityRadius", 0);
+
+	private static final int LEAVE_RADIUS = RADIUS + 4;
+	private static final double SWEEP_DISTANCE_SQ = 4.0;
+
+	public static final int RANGE_VISIBLE = 0;
+	public static final int RANGE_CULLED = 1;
+	public static final int RANGE_ENTERED = 2;
+	public static final int RANGE_LEFT = 3;
+
+	private static class Entry {
+
+		private int eid;
+		private boolean visible;
+		private byte[] spawn;
+		private int spawnPosOffset;
+		private byte[] metadata;
+		private byte[][] equipment;
+		private byte[] attach;
+
+	}
+
+	private final EntityTable entities;
+	private final IntIntMap entityToSlot;
+	private Entry[] entries;
+	private int count = 0;
+	private int freeCount = 0;
+	private int[] freeSlots;
+	private double sweepX = Double.NaN;
+	private double sweepZ = Double.NaN;
+
+	private final int[] mergeOffsets = new int[32];
+
+	public EntityInterestTracker(HPPC hppc, EntityTable entities) {
+		this.entities = entities;
+		this.entityToSlot = hppc.createIntIntHashMap(32);
+		this.entries = new Entry[16];
+		this.freeSlots = new int[16];
+	}
+
+	private Entry getEntry(int eid) {
+		int i = entityToSlot.getOrDefault(eid, -1);
+		return i != -1 ? entries[i] : null;
+	}
+
+	private Entry createEntry(int eid) {
+		int i = entityToSlot.getOrDefault(eid, -1);
+		if (i == -1) {
+			if (freeCount > 0) {
+				i = freeSlots[--freeCount];
+			} else {
+				i = count++;
+				if (i == entries.length) {
+					Entry[] tmp = new Entry[i << 1];
+					System.arraycopy(entries, 0, tmp, 0, i);
+					entries = tmp;
+				}
+			}
+			entityToSlot.put(eid, i);
+		}
+		Entry e = new Entry();
+		e.eid = eid;
+		entries[i] = e;
+		return e;
+	}
+
+	private boolean isInRange(int eid, int radius, double px, double pz) {
+		int slot = entities.findPositioned(eid);
+		if (slot == -1) {
+			return true;
+		}
+		double dx = entities.getX(slot) / 32.0 - px;
+		double dz = entities.getZ(slot) / 32.0 - pz;
+		return dx >= -radius && dx <= radius && dz >= -radius && dz <= radius;
+	}
+
+	/**
+	 * Takes a translated legacy spawn packet, returns false if it should not be
+	 * sent to the client yet
+	 */
+	public boolean handleSpawn(ByteBuf bb, double px, double pz) {
+		int start = bb.readerIndex();
+		int eid = bb.getInt(start + 1);
+		if (entities.findPositioned(eid) == -1) {
+			handleRemove(eid);
+			return true;
+		}
+		int posOffset;
+		switch (bb.getUnsignedByte(start)) {
+		case 0x14:
+			posOffset = 7 + (bb.getUnsignedShort(start + 5) << 1);
+			break;
+		case 0x17:
+		case 0x18:
+			posOffset = 6;
+			break;
+		case 0x1A:
+			posOffset = 5;
+			break;
+		default:
+			handleRemove(eid);
+			return true;
+		}
+		Entry e = createEntry(eid);
+		e.spawn = new byte[bb.readableBytes()];
+		bb.getBytes(start, e.spawn);
+		e.spawnPosOffset = posOffset;
+		e.visible = isInRange(eid, RADIUS, px, pz);
+		return e.visible;
+	}
+
+	/**
+	 * Returns true if the entity is visible to the client
+	 */
+	public boolean isVisible(int eid) {
+		Entry e = getEntry(eid);
+		return e == null || e.visible;
+	}
+
+	/**
+	 * Takes a translated legacy 0x28 packet, returns false if it should not be
+	 * sent to the client
+	 */
+	public boolean handleMetadata(ByteBuf bb) {
+		int start = bb.readerIndex();
+		Entry e = getEntry(bb.getInt(start + 1));
+		if (e == null) {
+			return true;
+		}
+		int end = bb.writerIndex() - 1;
+		byte[] add = new byte[end - start - 5];
+		bb.getBytes(start + 5, add);
+		e.metadata = e.metadata != null ? mergeMetadata(e.metadata, add) : add;
+		return e.visible;
+	}
+
+	private byte[] mergeMetadata(byte[] old, byte[] add) {
+		int[] offsets = mergeOffsets;
+		for (int i = 0; i < 32; ++i) {
+			offsets[i] = -1;
+		}
+		for (int i = 0; i < old.length; i += legacyEntryLength(old, i)) {
+			offsets[old[i] & 0x1F] = i;
+		}
+		for (int i = 0; i < add.length; i += legacyEntryLength(add, i)) {
+			offsets[add[i] & 0x1F] = -1;
+		}
+		int len = add.length;
+		for (int i = 0; i < 32; ++i) {
+			if (offsets[i] != -1) {
+				len += legacyEntryLength(old, offsets[i]);
+			}
+		}
+		byte[] ret = new byte[len];
+		int j = 0;
+		for (int i = 0; i < 32; ++i) {
+			int k = offsets[i];
+			if (k != -1) {
+				int l = legacyEntryLength(old, k);
+				System.arraycopy(old, k, ret, j, l);
+				j += l;
+			}
+		}
+		System.arraycopy(add, 0, ret, j, add.length);
+		return ret;
+	}
+
+	private static int legacyEntryLength(byte[] buf, int off) {
+		switch ((buf[off] & 0xFF) >> 5) {
+		case 0:
+			return 2;
+		case 1:
+			return 3;
+		case 2:
+		case 3:
+			return 5;
+		case 4:
+			return 3 + ((((buf[off + 1] & 0xFF) << 8) | (buf[off + 2] & 0xFF)) << 1);
+		case 5:
+			if (buf[off + 1] == (byte) 0xFF && buf[off + 2] == (byte) 0xFF) {
+				return 3;
+			}
+			int nbtLen = (short) (((buf[off + 6] & 0xFF) << 8) | (buf[off + 7] & 0xFF));
+			return 8 + (nbtLen > 0 ? nbtLen : 0);
+		case 6:
+			return 13;
+		default:
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	/**
+	 * Takes a translated legacy 0x05 packet, returns false if it should not be
+	 * sent to the client
+	 */
+	public boolean handleEquipment(ByteBuf bb) {
+		int start = bb.readerIndex();
+		Entry e = getEntry(bb.getInt(start + 1));
+		if (e == null) {
+			return true;
+		}
+		int slot = bb.getShort(start + 5);
+		if (slot >= 0 && slot < 5) {
+			if (e.equipment == null) {
+				e.equipment = new byte[5][];
+			}
+			byte[] pkt = new byte[bb.readableBytes()];
+			bb.getBytes(start, pkt);
+			e.equipment[slot] = pkt;
+		}
+		return e.visible;
+	}
+
+	/**
+	 * Takes a translated legacy 0x27 packet, returns false if it should not be
+	 * sent to the client
+	 */
+	public boolean handleAttach(ByteBuf bb) {
+		int start = bb.readerIndex();
+		Entry e = getEntry(bb.getInt(start + 1));
+		if (e == null) {
+			return true;
+		}
+		if (bb.getInt(start + 5) == -1) {
+			e.attach = null;
+		} else {
+			e.attach = new byte[bb.readableBytes()];
+			bb.getBytes(start, e.attach);
+		}
+		return e.visible;
+	}
+
+	/**
+	 * Call after the tracked position of the entity changes
+	 */
+	public int handleMove(int eid, double px, double pz) {
+		Entry e = getEntry(eid);
+		if (e == null) {
+			return RANGE_VISIBLE;
+		}
+		if (e.visible) {
+			if (isInRange(eid, LEAVE_RADIUS, px, pz)) {
+				return RANGE_VISIBLE;
+			}
+			e.visible = false;
+			return RANGE_LEFT;
+		} else {
+			if (!isInRange(eid, RADIUS, px, pz)) {
+				return RANGE_CULLED;
+			}
+			e.visible = true;
+			return RANGE_ENTERED;
+		}
+	}
+
+	/**
+	 * Returns true if the client knows about the entity
+	 */
+	public boolean handleRemove(int eid) {
+		int i = entityToSlot.getOrDefault(eid, -1);
+		if (i == -1) {
+			return true;
+		}
+		entityToSlot.remove(eid);
+		boolean ret = entries[i].visible;
+		entries[i] = null;
+		if (freeCount == freeSlots.length) {
+			int[] tmp = new int[freeCount << 1];
+			System.arraycopy(freeSlots, 0, tmp, 0, freeCount);
+			freeSlots = tmp;
+		}
+		freeSlots[freeCount++] = i;
+		return ret;
+	}
+
+	public void reset() {
+		entityToSlot.clear();
+		for (int i = 0; i < count; ++i) {
+			entries[i] = null;
+		}
+		count = 0;
+		freeCount = 0;
+		sweepX = Double.NaN;
+		sweepZ = Double.NaN;
+	}
+
+	/**
+	 * Writes the packets to spawn the entity again at its current position
+	 */
+	public void writeRespawn(int eid, ByteBuf bb) {
+		Entry e = getEntry(eid);
+		int slot = entities.findPositioned(eid);
+		if (e == null || slot == -1) {
+			return;
+		}
+		int start = bb.writerIndex();
+		bb.writeBytes(e.spawn);
+		int posAt = start + e.spawnPosOffset;
+		bb.setInt(posAt, entities.getX(slot));
+		bb.setInt(posAt + 4, entities.getY(slot));
+		bb.setInt(posAt + 8, entities.getZ(slot));
+		bb.writeByte(0x20);
+		bb.writeInt(eid);
+		bb.writeByte(entities.getYaw(slot));
+		bb.writeByte(entities.getPitch(slot));
+		if (e.metadata != null) {
+			bb.writeByte(0x28);
+			bb.writeInt(eid);
+			bb.writeBytes(e.metadata);
+			bb.writeByte(0x7F);
+		}
+		if (e.equipment != null) {
+			for (int i = 0; i < 5; ++i) {
+				byte[] pkt = e.equipment[i];
+				if (pkt != null) {
+					bb.writeBytes(pkt);
+				}
+			}
+		}
+		if (e.attach != null) {
+			bb.writeBytes(e.attach);
+		}
+	}
+
+	public static void writeDespawn(int eid, ByteBuf bb) {
+		bb.writeByte(0x1D);
+		bb.writeByte(1);
+		bb.writeInt(eid);
+	}
+
+	/**
+	 * Checks every entity again after the player has moved far enough since the
+	 * last time
+	 */
+	public void sweep(double px, double pz, ByteBufAllocator alloc, List<Object> out) {
+		double dx = px - sweepX;
+		double dz = pz - sweepZ;
+		if (dx * dx + dz * dz < SWEEP_DISTANCE_SQ) {
+			return;
+		}
+		sweepX = px;
+		sweepZ = pz;
+		ByteBuf bb = null;
+		int despawnCountAt = -1;
+		int despawnCount = 0;
+		try {
+			for (int i = 0; i < count; ++i) {
+				Entry e = entries[i];
+				if (e == null) {
+					continue;
+				}
+				int eid = e.eid;
+				if (e.visible) {
+					if (!isInRange(eid, LEAVE_RADIUS, px, pz)) {
+						e.visible = false;
+						if (bb == null) {
+							bb = alloc.buffer();
+						}
+						if (despawnCountAt == -1 || despawnCount == 127) {
+							bb.writeByte(0x1D);
+							despawnCountAt = bb.writerIndex();
+							bb.writeByte(0);
+							despawnCount = 0;
+						}
+						bb.writeInt(eid);
+						bb.setByte(despawnCountAt, ++despawnCount);
+					}
+				}
+			}
+			for (int i = 0; i < count; ++i) {
+				Entry e = entries[i];
+				if (e != null && !e.visible && isInRange(e.eid, RADIUS, px, pz)) {
+					e.visible = true;
+					if (bb == null) {
+						bb = alloc.buffer();
+					}
+					writeRespawn(e.eid, bb);
+				}
+			}
+		} catch (Throwable t) {
+			if (bb != null) {
+				bb.release();
+			}
+			throw t;
+		}
+		if (bb != null) {
+			out.add(bb);
+		}
+	}
+
+}
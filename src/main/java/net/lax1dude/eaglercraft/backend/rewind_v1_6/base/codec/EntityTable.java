@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+/**
+ * Open addressing table of the entities the legacy client knows about, stored
+ * in parallel primitive arrays so a lookup finds the type, position and cache
+ * slots of an entity in a single probe.
+ * 
+ * Note: indices are only valid until the next put or remove
+ */
+public class EntityTable {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private static final int FLAG_USED = 1;
+	private static final int FLAG_POSITION = 2;
+
+	private int size = 0;
+	private int mask;
+	private int[] keys;
+	private int[] flags;
+	private int[] types;
+	private int[] posX;
+	private int[] posY;
+	private int[] posZ;
+	private byte[] yaw;
+	private byte[] pitch;
+	private int[] deltaSlots;
+
+	public EntityTable() {
+		alloc(MIN_CAPACITY);
+	}
+
+	private void alloc(int cap) {
+		mask = cap - 1;
+		keys = new int[cap];
+		flags = new int[cap];
+		types = new int[cap];
+		posX = new int[cap];
+		posY = new int[cap];
+		posZ = new int[cap];
+		yaw = new byte[cap];
+		pitch = new byte[cap];
+		deltaSlots = new int[cap];
+	}
+
+	private static int hash(int eid) {
+		int h = eid * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	public int find(int eid) {
+		int[] keys = this.keys;
+		int[] flags = this.flags;
+		int i = hash(eid) & mask;
+		while ((flags[i] & FLAG_USED) != 0) {
+			if (keys[i] == eid) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns -1 if the entity is unknown or its position is not tracked
+	 */
+	public int findPositioned(int eid) {
+		int i = find(eid);
+		return (i != -1 && (flags[i] & FLAG_POSITION) != 0) ? i : -1;
+	}
+
+	/**
+	 * Adds the entity or replaces its type and forgets its position, the delta
+	 * cache slot of an existing entity is kept
+	 */
+	public int put(int eid, int type) {
+		int i = find(eid);
+		if (i == -1) {
+			if ((size + 1) << 1 > mask + 1) {
+				resize((mask + 1) << 1);
+			}
+			i = hash(eid) & mask;
+			while ((flags[i] & FLAG_USED) != 0) {
+				i = (i + 1) & mask;
+			}
+			++size;
+			keys[i] = eid;
+			deltaSlots[i] = -1;
+		}
+		flags[i] = FLAG_USED;
+		types[i] = type;
+		return i;
+	}
+
+	public void removeAt(int i) {
+		--size;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if ((flags[j] & FLAG_USED) == 0) {
+				break;
+			}
+			int k = hash(keys[j]) & mask;
+			if (i <= j ? (i < k && k <= j) : (i < k || k <= j)) {
+				continue;
+			}
+			copySlot(j, i);
+			i = j;
+		}
+		flags[i] = 0;
+		int cap = MIN_CAPACITY;
+		while (cap < (size << 2)) {
+			cap <<= 1;
+		}
+		if (cap < ((mask + 1) >> 1)) {
+			resize(cap);
+		}
+	}
+
+	private void copySlot(int from, int to) {
+		keys[to] = keys[from];
+		flags[to] = flags[from];
+		types[to] = types[from];
+		posX[to] = posX[from];
+		posY[to] = posY[from];
+		posZ[to] = posZ[from];
+		yaw[to] = yaw[from];
+		pitch[to] = pitch[from];
+		deltaSlots[to] = deltaSlots[from];
+	}
+
+	private void resize(int cap) {
+		int[] oldKeys = keys, oldFlags = flags, oldTypes = types, oldX = posX, oldY = posY, oldZ = posZ,
+				oldDeltaSlots = deltaSlots;
+		byte[] oldYaw = yaw, oldPitch = pitch;
+		alloc(cap);
+		for (int j = 0; j < oldKeys.length; ++j) {
+			if ((oldFlags[j] & FLAG_USED) != 0) {
+				int i = hash(oldKeys[j]) & mask;
+				while ((flags[i] & FLAG_USED) != 0) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				flags[i] = oldFlags[j];
+				types[i] = oldTypes[j];
+				posX[i] = oldX[j];
+				posY[i] = oldY[j];
+				posZ[i] = oldZ[j];
+				yaw[i] = oldYaw[j];
+				pitch[i] = oldPitch[j];
+				deltaSlots[i] = oldDeltaSlots[j];
+			}
+		}
+	}
+
+	public void reset() {
+		size = 0;
+		alloc(MIN_CAPACITY);
+	}
+
+	public int typeAt(int i) {
+		return types[i];
+	}
+
+	public boolean hasPosition(int i) {
+		return (flags[i] & FLAG_POSITION) != 0;
+	}
+
+	public void setPosition(int i, int x, int y, int z, int yaw, int pitch) {
+		flags[i] |= FLAG_POSITION;
+		posX[i] = x;
+		posY[i] = y;
+		posZ[i] = z;
+		this.yaw[i] = (byte) yaw;
+		this.pitch[i] = (byte) pitch;
+	}
+
+	public void move(int i, int dx, int dy, int dz) {
+		posX[i] += dx;
+		posY[i] += dy;
+		posZ[i] += dz;
+	}
+
+	public void setLook(int i, byte yaw, byte pitch) {
+		this.yaw[i] = yaw;
+		this.pitch[i] = pitch;
+	}
+
+	public int getX(int i) {
+		return posX[i];
+	}
+
+	public int getY(int i) {
+		return posY[i];
+	}
+
+	public int getZ(int i) {
+		return posZ[i];
+	}
+
+	public byte getYaw(int i) {
+		return yaw[i];
+	}
+
+	public byte getPitch(int i) {
+		return pitch[i];
+	}
+
+	public int getDeltaSlot(int i) {
+		return deltaSlots[i];
+	}
+
+	public void setDeltaSlot(int i, int slot) {
+		deltaSlots[i] = slot;
+	}
+
+	/**
+	 * Detaches every entity from the delta cache, call before resetting it
+	 */
+	public void clearDeltaSlots() {
+		for (int i = 0; i < keys.length; ++i) {
+			deltaSlots[i] = -1;
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Shared by all connections, caches the final gzipped legacy NBT (including
+ * its length prefix) of items that are sent over and over, like shop and
+ * server selector menus. Entries are keyed by a hash of the raw 1.8 NBT bytes
+ * and compared byte for byte, each stripe evicts its least recently used
+ * entries once it is over its share of the byte budget.
+ */
+public class ItemNBTCache {
+
+	public static final int CACHE_BYTES = Integer.getInteger("eaglerxrewind.nbtCacheBytes", 4194304);
+	public static final int MAX_KEY_LENGTH = Integer.getInteger("eaglerxrewind.nbtCacheMaxLength", 16384);
+
+	private static final int STRIPES = 16;
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private static class Entry {
+
+		private final byte[] key;
+		private final byte[] value;
+
+		private Entry(byte[] key, byte[] value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		private int size() {
+			return key.length + value.length + ENTRY_OVERHEAD;
+		}
+
+	}
+
+	private static class Stripe extends LinkedHashMap<Long, Entry> {
+
+		private static final long serialVersionUID = 1L;
+
+		private long bytes;
+
+		private Stripe() {
+			super(16, 0.75f, true);
+		}
+
+	}
+
+	private final Stripe[] stripes;
+	private final long stripeBytes;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder memory = new LongAdder();
+
+	public ItemNBTCache() {
+		if (CACHE_BYTES > 0) {
+			stripeBytes = CACHE_BYTES / STRIPES;
+			stripes = new Stripe[STRIPES];
+			for (int i = 0; i < STRIPES; ++i) {
+				stripes[i] = new Stripe();
+			}
+		} else {
+			stripeBytes = 0l;
+			stripes = null;
+		}
+	}
+
+	public boolean isEnabled() {
+		return stripes != null;
+	}
+
+	/**
+	 * Writes the cached legacy NBT for the 1.8 NBT at start and returns true, or
+	 * returns false if it is not in the cache
+	 */
+	public boolean writeCached(ByteBuf in, int start, int len, ByteBuf out) {
+		long hash = ChatComponentCache.hash(in, start, len);
+		Stripe stripe = stripes[(int) (hash >>> 60)];
+		Entry e;
+		synchronized (stripe) {
+			e = stripe.get(hash);
+		}
+		if (e != null && ChatComponentCache.equals(e.key, in, start, len)) {
+			hits.increment();
+			out.writeBytes(e.value);
+			return true;
+		}
+		misses.increment();
+		return false;
+	}
+
+	/**
+	 * Stores the legacy NBT that was just written to out starting at outStart
+	 */
+	public void store(ByteBuf in, int start, int len, ByteBuf out, int outStart) {
+		int outLen = out.writerIndex() - outStart;
+		if (len + outLen + ENTRY_OVERHEAD > stripeBytes) {
+			return;
+		}
+		byte[] key = new byte[len];
+		in.getBytes(start, key);
+		byte[] value = new byte[outLen];
+		out.getBytes(outStart, value);
+		Entry e = new Entry(key, value);
+		long hash = ChatComponentCache.hash(in, start, len);
+		Stripe stripe = stripes[(int) (hash >>> 60)];
+		long delta = e.size();
+		synchronized (stripe) {
+			Entry old = stripe.put(hash, e);
+			if (old != null) {
+				delta -= old.size();
+			}
+			stripe.bytes += delta;
+			if (stripe.bytes > stripeBytes) {
+				Iterator<Entry> itr = stripe.values().iterator();
+				while (stripe.bytes > stripeBytes && itr.hasNext()) {
+					int size = itr.next().size();
+					itr.remove();
+					stripe.bytes -= size;
+					delta -= size;
+				}
+			}
+		}
+		memory.add(delta);
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total > 0l ? (double) h / total : 0.0;
+	}
+
+	/**
+	 * Approximate bytes held by the cache, including per entry overhead
+	 */
+	public long getMemoryUsage() {
+		return memory.sum();
+	}
+
+}
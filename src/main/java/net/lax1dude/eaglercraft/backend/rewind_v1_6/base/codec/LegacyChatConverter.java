@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Converts a 1.8 JSON chat component straight from its UTF-8 bytes into a
+ * legacy section formatted string, in one pass and without building a String
+ * or a component tree. Only text components are supported (text, extra, color
+ * and the formatting flags, click and hover events are ignored), anything else
+ * makes convert return false so the caller can fall back to the API helper.
+ */
+public class LegacyChatConverter {
+
+	private static final int FAIL = -1;
+	private static final int MAX_DEPTH = 32;
+
+	private static final byte[][] COLOR_NAMES = new byte[][] { bytes("black"), bytes("dark_blue"),
+			bytes("dark_green"), bytes("dark_aqua"), bytes("dark_red"), bytes("dark_purple"), bytes("gold"),
+			bytes("gray"), bytes("dark_gray"), bytes("blue"), bytes("green"), bytes("aqua"), bytes("red"),
+			bytes("light_purple"), bytes("yellow"), bytes("white") };
+	private static final byte[] COLOR_RESET = bytes("reset");
+	private static final char[] COLOR_CODES = "0123456789abcdef".toCharArray();
+
+	private static final byte[][] FORMAT_NAMES = new byte[][] { bytes("obfuscated"), bytes("bold"),
+			bytes("strikethrough"), bytes("underlined"), bytes("italic") };
+	private static final char[] FORMAT_CODES = "klmno".toCharArray();
+
+	private static final byte[] KEY_TEXT = bytes("text");
+	private static final byte[] KEY_COLOR = bytes("color");
+	private static final byte[] KEY_EXTRA = bytes("extra");
+	private static final byte[] KEY_CLICK_EVENT = bytes("clickEvent");
+	private static final byte[] KEY_HOVER_EVENT = bytes("hoverEvent");
+	private static final byte[] KEY_INSERTION = bytes("insertion");
+
+	private static byte[] bytes(String str) {
+		byte[] ret = new byte[str.length()];
+		for (int i = 0; i < ret.length; ++i) {
+			ret[i] = (byte) str.charAt(i);
+		}
+		return ret;
+	}
+
+	/**
+	 * Writes a legacy string (short length and UTF-16 chars, cut off after maxLen
+	 * chars) to out, reading len bytes of JSON from in at start without moving its
+	 * reader index. Returns false and leaves out unchanged if the component needs
+	 * the API helper.
+	 */
+	public static boolean convert(ByteBuf in, int start, int len, ByteBuf out, int maxLen) {
+		int writeLenAt = out.writerIndex();
+		out.writeShort(0);
+		LegacyChatConverter converter = new LegacyChatConverter(in, start + len, out, maxLen);
+		int pos = converter.skipWhitespace(start);
+		if (pos < converter.end) {
+			pos = converter.component(pos, -1, 0, 0);
+			if (pos != FAIL) {
+				pos = converter.skipWhitespace(pos);
+			}
+		}
+		if (pos != converter.end) {
+			out.writerIndex(writeLenAt);
+			return false;
+		}
+		out.setShort(writeLenAt, converter.written);
+		return true;
+	}
+
+	private final ByteBuf in;
+	private final int end;
+	private final ByteBuf out;
+	private final int maxLen;
+	private int written = 0;
+	private int currentColor = -1;
+	private int currentFormat = 0;
+
+	private LegacyChatConverter(ByteBuf in, int end, ByteBuf out, int maxLen) {
+		this.in = in;
+		this.end = end;
+		this.out = out;
+		this.maxLen = maxLen;
+	}
+
+	private int component(int pos, int color, int format, int depth) {
+		if (depth > MAX_DEPTH) {
+			return FAIL;
+		}
+		switch (in.getByte(pos)) {
+		case '"':
+			return text(pos, color, format);
+		case '{':
+			return object(pos, color, format, depth);
+		default:
+			return FAIL;
+		}
+	}
+
+	private int object(int pos, int color, int format, int depth) {
+		int textAt = -1;
+		int extraAt = -1;
+		pos = skipWhitespace(pos + 1);
+		if (pos < end && in.getByte(pos) == '}') {
+			return pos + 1;
+		}
+		while (pos < end) {
+			if (in.getByte(pos) != '"') {
+				return FAIL;
+			}
+			int keyStart = pos + 1;
+			pos = skipString(pos);
+			if (pos == FAIL) {
+				return FAIL;
+			}
+			int keyLen = pos - keyStart - 1;
+			pos = skipWhitespace(pos);
+			if (pos >= end || in.getByte(pos) != ':') {
+				return FAIL;
+			}
+			pos = skipWhitespace(pos + 1);
+			if (pos >= end) {
+				return FAIL;
+			}
+			byte b = in.getByte(pos);
+			if (matches(keyStart, keyLen, KEY_TEXT)) {
+				if (b != '"') {
+					return FAIL;
+				}
+				textAt = pos;
+				pos = skipString(pos);
+			} else if (matches(keyStart, keyLen, KEY_COLOR)) {
+				if (b != '"') {
+					return FAIL;
+				}
+				int nameStart = pos + 1;
+				pos = skipString(pos);
+				if (pos == FAIL) {
+					return FAIL;
+				}
+				color = parseColor(nameStart, pos - nameStart - 1);
+				if (color == -2) {
+					return FAIL;
+				}
+			} else if (matches(keyStart, keyLen, KEY_EXTRA)) {
+				if (b != '[') {
+					return FAIL;
+				}
+				extraAt = pos;
+				pos = skipValue(pos);
+			} else if (matches(keyStart, keyLen, KEY_CLICK_EVENT) || matches(keyStart, keyLen, KEY_HOVER_EVENT)
+					|| matches(keyStart, keyLen, KEY_INSERTION)) {
+				pos = skipValue(pos);
+			} else {
+				int fmt = parseFormatKey(keyStart, keyLen);
+				if (fmt == 0) {
+					return FAIL;
+				}
+				if (b == 't' && matchesLiteral(pos, "true")) {
+					format |= fmt;
+					pos += 4;
+				} else if (b == 'f' && matchesLiteral(pos, "false")) {
+					format &= ~fmt;
+					pos += 5;
+				} else {
+					return FAIL;
+				}
+			}
+			if (pos == FAIL) {
+				return FAIL;
+			}
+			pos = skipWhitespace(pos);
+			if (pos >= end) {
+				return FAIL;
+			}
+			b = in.getByte(pos);
+			if (b == '}') {
+				break;
+			} else if (b != ',') {
+				return FAIL;
+			}
+			pos = skipWhitespace(pos + 1);
+		}
+		if (pos >= end) {
+			return FAIL;
+		}
+		int ret = pos + 1;
+		if (textAt != -1 && text(textAt, color, format) == FAIL) {
+			return FAIL;
+		}
+		if (extraAt != -1 && extra(extraAt, color, format, depth) == FAIL) {
+			return FAIL;
+		}
+		return ret;
+	}
+
+	private int extra(int pos, int color, int format, int depth) {
+		pos = skipWhitespace(pos + 1);
+		if (pos < end && in.getByte(pos) == ']') {
+			return pos + 1;
+		}
+		while (pos < end) {
+			pos = component(pos, color, format, depth + 1);
+			if (pos == FAIL) {
+				return FAIL;
+			}
+			pos = skipWhitespace(pos);
+			if (pos >= end) {
+				return FAIL;
+			}
+			byte b = in.getByte(pos);
+			if (b == ']') {
+				return pos + 1;
+			} else if (b != ',') {
+				return FAIL;
+			}
+			pos = skipWhitespace(pos + 1);
+		}
+		return FAIL;
+	}
+
+	private int text(int pos, int color, int format) {
+		++pos;
+		if (pos < end && in.getByte(pos) == '"') {
+			return pos + 1;
+		}
+		if (color != currentColor || (currentFormat & ~format) != 0) {
+			writeChar('\u00A7');
+			writeChar(color == -1 ? 'r' : COLOR_CODES[color]);
+			currentColor = color;
+			currentFormat = 0;
+		}
+		int newFormat = format & ~currentFormat;
+		if (newFormat != 0) {
+			for (int i = 0; i < FORMAT_CODES.length; ++i) {
+				if ((newFormat & (1 << i)) != 0) {
+					writeChar('\u00A7');
+					writeChar(FORMAT_CODES[i]);
+				}
+			}
+			currentFormat = format;
+		}
+		while (pos < end) {
+			int b = in.getByte(pos++) & 0xFF;
+			if (b == '"') {
+				return pos;
+			} else if (b == '\\') {
+				if (pos >= end) {
+					return FAIL;
+				}
+				b = in.getByte(pos++);
+				switch (b) {
+				case '"':
+				case '\\':
+				case '/':
+					writeChar((char) b);
+					break;
+				case 'b':
+					writeChar('\b');
+					break;
+				case 'f':
+					writeChar('\f');
+					break;
+				case 'n':
+					writeChar('\n');
+					break;
+				case 'r':
+					writeChar('\r');
+					break;
+				case 't':
+					writeChar('\t');
+					break;
+				case 'u':
+					if (pos + 4 > end) {
+						return FAIL;
+					}
+					int c = 0;
+					for (int i = 0; i < 4; ++i) {
+						int h = Character.digit(in.getByte(pos++), 16);
+						if (h == -1) {
+							return FAIL;
+						}
+						c = (c << 4) | h;
+					}
+					writeChar((char) c);
+					break;
+				default:
+					return FAIL;
+				}
+			} else if (b < 0x80) {
+				if (b < 0x20) {
+					return FAIL;
+				}
+				writeChar((char) b);
+			} else if (b < 0xC0) {
+				return FAIL;
+			} else if (b < 0xE0) {
+				if (pos >= end) {
+					return FAIL;
+				}
+				writeChar((char) (((b & 0x1F) << 6) | (in.getByte(pos++) & 0x3F)));
+			} else if (b < 0xF0) {
+				if (pos + 2 > end) {
+					return FAIL;
+				}
+				writeChar((char) (((b & 0x0F) << 12) | ((in.getByte(pos) & 0x3F) << 6)
+						| (in.getByte(pos + 1) & 0x3F)));
+				pos += 2;
+			} else if (b < 0xF8) {
+				if (pos + 3 > end) {
+					return FAIL;
+				}
+				int cp = ((b & 0x07) << 18) | ((in.getByte(pos) & 0x3F) << 12) | ((in.getByte(pos + 1) & 0x3F) << 6)
+						| (in.getByte(pos + 2) & 0x3F);
+				pos += 3;
+				writeChar(Character.highSurrogate(cp));
+				writeChar(Character.lowSurrogate(cp));
+			} else {
+				return FAIL;
+			}
+		}
+		return FAIL;
+	}
+
+	private void writeChar(char c) {
+		if (written < maxLen) {
+			out.writeChar(c);
+			++written;
+		}
+	}
+
+	private int parseColor(int start, int len) {
+		if (matches(start, len, COLOR_RESET)) {
+			return -1;
+		}
+		for (int i = 0; i < COLOR_NAMES.length; ++i) {
+			if (matches(start, len, COLOR_NAMES[i])) {
+				return i;
+			}
+		}
+		return -2;
+	}
+
+	private int parseFormatKey(int start, int len) {
+		for (int i = 0; i < FORMAT_NAMES.length; ++i) {
+			if (matches(start, len, FORMAT_NAMES[i])) {
+				return 1 << i;
+			}
+		}
+		return 0;
+	}
+
+	private boolean matches(int start, int len, byte[] name) {
+		if (len != name.length) {
+			return false;
+		}
+		for (int i = 0; i < len; ++i) {
+			if (in.getByte(start + i) != name[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean matchesLiteral(int pos, String literal) {
+		int len = literal.length();
+		if (pos + len > end) {
+			return false;
+		}
+		for (int i = 0; i < len; ++i) {
+			if (in.getByte(pos + i) != literal.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int skipWhitespace(int pos) {
+		while (pos < end) {
+			byte b = in.getByte(pos);
+			if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+				break;
+			}
+			++pos;
+		}
+		return pos;
+	}
+
+	/**
+	 * Returns the index after the closing quote, keys containing escapes never
+	 * match any of the names so they are not decoded
+	 */
+	private int skipString(int pos) {
+		++pos;
+		while (pos < end) {
+			byte b = in.getByte(pos++);
+			if (b == '"') {
+				return pos;
+			} else if (b == '\\') {
+				++pos;
+			}
+		}
+		return FAIL;
+	}
+
+	private int skipValue(int pos) {
+		int nesting = 0;
+		while (pos < end) {
+			byte b = in.getByte(pos);
+			switch (b) {
+			case '"':
+				pos = skipString(pos);
+				if (pos == FAIL) {
+					return FAIL;
+				}
+				if (nesting == 0) {
+					return pos;
+				}
+				continue;
+			case '{':
+			case '[':
+				if (++nesting > MAX_DEPTH) {
+					return FAIL;
+				}
+				break;
+			case '}':
+			case ']':
+				if (nesting == 0) {
+					return pos;
+				}
+				if (--nesting == 0) {
+					return pos + 1;
+				}
+				break;
+			case ',':
+				if (nesting == 0) {
+					return pos;
+				}
+				break;
+			default:
+				break;
+			}
+			++pos;
+		}
+		return nesting == 0 ? pos : FAIL;
+	}
+
+}
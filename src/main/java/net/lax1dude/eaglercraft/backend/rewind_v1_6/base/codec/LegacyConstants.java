@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Constant legacy strings and packets encoded once at startup, the byte arrays
+ * must never be modified and the buffers are read only, write a duplicate()
+ */
+public class LegacyConstants {
+
+	/**
+	 * Packet250CustomPayload id followed by the channel name, the caller writes the
+	 * payload length and data
+	 */
+	public static final byte[] PLUGIN_EAG_VOICE = createPluginHeader("EAG|Voice");
+	public static final byte[] PLUGIN_EAG_USER_SKIN = createPluginHeader("EAG|UserSkin");
+	public static final byte[] PLUGIN_EAG_RECONNECT = createPluginHeader("EAG|Reconnect");
+
+	public static final ByteBuf KICK_INTERNAL_ERROR = BufferUtils.createLegacyKickPacket("Internal Error");
+
+	private static byte[] createPluginHeader(String channel) {
+		byte[] str = BufferUtils.encodeLegacyMCString(channel, 255);
+		byte[] ret = new byte[1 + str.length];
+		ret[0] = (byte) 0xFA;
+		System.arraycopy(str, 0, ret, 1, str.length);
+		return ret;
+	}
+
+}
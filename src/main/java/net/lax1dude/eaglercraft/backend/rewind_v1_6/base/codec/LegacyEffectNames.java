@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+/**
+ * Legacy particle names, pre-encoded as legacy strings (short length followed
+ * by UTF-16 chars) so they can be written without building a String
+ */
+public class LegacyEffectNames {
+
+	private static final String[] particleNames = new String[] {
+			"explode",
+			"largeexplode",
+			"hugeexplosion",
+			"fireworksSpark",
+			"bubble",
+			"splash",
+			null, // wake
+			"suspended",
+			"depthsuspend",
+			"crit",
+			"magicCrit",
+			"smoke",
+			"largesmoke",
+			"spell",
+			"instantSpell",
+			"mobSpell",
+			"mobSpellAmbient",
+			"witchMagic",
+			"dripWater",
+			"dripLava",
+			"angryVillager",
+			"happyVillager",
+			"townaura",
+			"note",
+			"portal",
+			"enchantmenttable",
+			"flame",
+			"lava",
+			"footstep",
+			"cloud",
+			"reddust",
+			"snowballpoof",
+			"snowshovel",
+			"slime",
+			"heart",
+			null, // barrier
+			"", // iconcrack_(id)_(data)
+			"", // blockcrack_(id)
+			"", // blockdust_(id)
+			null, // droplet
+			null, // take
+			null // mobappearance
+	};
+
+	private static final byte[][] PARTICLES;
+
+	/**
+	 * Lazily filled, racing threads just encode the same name twice
+	 */
+	private static final byte[][] ICONCRACK = new byte[4096][];
+	private static final byte[][] TILECRACK = new byte[4096][];
+
+	static {
+		PARTICLES = new byte[particleNames.length][];
+		for (int i = 0; i < particleNames.length; ++i) {
+			String s = particleNames[i];
+			if (s != null) {
+				PARTICLES[i] = BufferUtils.encodeLegacyMCString(s, 255);
+			}
+		}
+	}
+
+	/**
+	 * Returns null if the particle doesn't exist in 1.5, and an empty array for the
+	 * crack particles that need their name from getIconCrack or getTileCrack
+	 */
+	public static byte[] getParticle(int id) {
+		return id >= 0 && id < PARTICLES.length ? PARTICLES[id] : null;
+	}
+
+	public static byte[] getIconCrack(int legacyItem) {
+		if (legacyItem < 0 || legacyItem >= ICONCRACK.length) {
+			return BufferUtils.encodeLegacyMCString("iconcrack_" + legacyItem, 255);
+		}
+		byte[] ret = ICONCRACK[legacyItem];
+		if (ret == null) {
+			ICONCRACK[legacyItem] = ret = BufferUtils.encodeLegacyMCString("iconcrack_" + legacyItem, 255);
+		}
+		return ret;
+	}
+
+	public static byte[] getTileCrack(int legacyBlock, int meta) {
+		if (legacyBlock < 0 || legacyBlock >= 256) {
+			return BufferUtils.encodeLegacyMCString("tilecrack_" + legacyBlock + "_" + meta, 255);
+		}
+		int i = (legacyBlock << 4) | meta;
+		byte[] ret = TILECRACK[i];
+		if (ret == null) {
+			TILECRACK[i] = ret = BufferUtils.encodeLegacyMCString("tilecrack_" + legacyBlock + "_" + meta, 255);
+		}
+		return ret;
+	}
+
+}
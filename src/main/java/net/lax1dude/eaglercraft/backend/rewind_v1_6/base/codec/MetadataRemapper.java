@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.RewindPlayer;
+
+/**
+ * Converts 1.8 entity metadata to 1.6 using a table of rules compiled once at
+ * startup, indexed by the entity type and the raw 1.8 entry header byte
+ */
+public class MetadataRemapper {
+
+	private static final int OP_DROP = 0;
+	private static final int OP_COPY = 1;
+	private static final int OP_BYTE_TO_INT = 2;
+	private static final int OP_SHORT_TO_BYTE = 3;
+	private static final int OP_INT_TO_BYTE = 4;
+	private static final int OP_FLOAT_TO_INT = 5;
+	private static final int OP_ZERO_BYTE = 6;
+	private static final int OP_BYTE_SHR = 7;
+	private static final int OP_BLOCK_STATE = 8;
+	private static final int OP_PLAYER_NAME = 9;
+
+	/**
+	 * Player is 300, mobs are 100 + mob type, objects are their object type and
+	 * entities spawned by their own packets (painting, xp orb) are 300 + 91/92
+	 */
+	private static final int MAX_ENTITY_TYPE = 400;
+
+	/**
+	 * Low 8 bits are the 1.6 header byte, the next bits are the op
+	 */
+	private static final short[][] RULES;
+
+	static {
+		RULES = new short[MAX_ENTITY_TYPE][];
+		List<short[]> rows = new ArrayList<>();
+		for (int i = 0; i < MAX_ENTITY_TYPE; ++i) {
+			short[] row = compileRow(i);
+			short[] dupe = null;
+			for (int j = 0, l = rows.size(); j < l; ++j) {
+				short[] row2 = rows.get(j);
+				if (Arrays.equals(row, row2)) {
+					dupe = row2;
+					break;
+				}
+			}
+			if (dupe == null) {
+				rows.add(row);
+				dupe = row;
+			}
+			RULES[i] = dupe;
+		}
+	}
+
+	private static short[] compileRow(int entityType) {
+		short[] row = new short[256];
+		for (int i = 0; i < 256; ++i) {
+			row[i] = (short) compileRule(entityType, i & 0x1F, i >> 5);
+		}
+		return row;
+	}
+
+	private static int rule(int op, int entryType, int index) {
+		return (op << 8) | (entryType << 5) | index;
+	}
+
+	private static int compileRule(int entityType, int index, int entryType) {
+		if (entryType == 7) {
+			return rule(OP_DROP, 0, 0);
+		}
+		boolean mobNotObject = entityType >= 100 && entityType <= 300;
+		boolean player = entityType == 300;
+		if (entityType >= 300) {
+			entityType -= 300;
+		} else if (entityType >= 100) {
+			entityType -= 100;
+		}
+		/**
+		 * If Object:
+		 * 91 = Painting
+		 * 92 = Experience orb
+		 * 93 = Lightning Bolt
+		 * If Mob:
+		 * 0 = Player
+		 * All else follows wiki.vg
+		 */
+		if (index == 2 && entryType == 4) {
+			return rule(player ? OP_PLAYER_NAME : OP_COPY, 4, 5);
+		} else if (index == 3 && entryType == 0) {
+			return rule(OP_COPY, 0, 6);
+		} else if (index == 7 && entryType == 2) {
+			return rule(OP_COPY, 2, 8);
+		} else if (index == 8 && entryType == 0) {
+			return rule(OP_COPY, 0, 9);
+		} else if (!mobNotObject && entityType != 71 && (index == 9 || index == 15) && entryType == 0) {
+			return rule(OP_DROP, 0, 0);
+		} else if (entityType != 54 && index == 12 && entryType == 0) {
+			return rule(OP_BYTE_TO_INT, 2, index);
+		} else if (mobNotObject) {
+			if (entityType == 0 && index == 9 && entryType == 0) {
+				return rule(OP_COPY, 0, 10);
+			} else if (entityType == 0
+					&& (((index == 10 || index == 16) && entryType == 0) || (index == 17 && entryType == 3))) {
+				return rule(OP_DROP, 0, 0);
+			} else if (entityType == 0 && index == 18 && entryType == 2) {
+				return rule(OP_DROP, 0, 0);
+			} else if (entityType == 54 && index == 14 && entryType == 0) {
+				return rule(OP_DROP, 0, 0);
+			} else if (entityType == 58 && index == 16 && entryType == 1) {
+				return rule(OP_SHORT_TO_BYTE, 0, index);
+			} else if (entityType == 60 || entityType == 94) {
+				return rule(OP_DROP, 0, 0);
+			} else if ((entityType == 63 || entityType == 64) && index == 6 && entryType == 3) {
+				return rule(OP_FLOAT_TO_INT, 2, 16);
+			} else if (entityType == 66 && index == 21 && entryType == 0) {
+				return rule(OP_DROP, 0, 0);
+			} else if (entityType == 95 && (index == 18 || index == 6) && entryType == 3) {
+				return rule(OP_FLOAT_TO_INT, 2, 18);
+			} else if (index == 16 && entryType == 2) {
+				return rule(OP_INT_TO_BYTE, 0, index);
+			} else if (index == 6 && entryType == 3) {
+				return rule(OP_DROP, 0, 0);
+			}
+		} else {
+			if ((entityType == 1 || entityType == 10 || entityType == 11 || entityType == 12) && index == 19
+					&& entryType == 3) {
+				return rule(OP_FLOAT_TO_INT, 2, index);
+			} else if (entityType == 51 && index == 8 && entryType == 2) {
+				return rule(OP_DROP, 0, 0);
+			} else if (entityType == 60 && index == 16 && entryType == 0) {
+				return rule(OP_ZERO_BYTE, 0, index);
+			} else if (entityType == 71 && index == 8 && entryType == 5) {
+				return rule(OP_COPY, 5, 2);
+			} else if (entityType == 71 && index == 9 && entryType == 0) {
+				return rule(OP_BYTE_SHR, 0, 3);
+			} else if (entityType == 77 || entityType == 78 || entityType == 90) {
+				return rule(OP_DROP, 0, 0);
+			} else if (entityType == 10 && index == 20 && entryType == 2) {
+				return rule(OP_BLOCK_STATE, 2, index);
+			}
+		}
+		return rule(OP_COPY, entryType, index);
+	}
+
+	public static String convertMetadata2Legacy(ByteBuf buffer, ByteBuf bb, int entityType, RewindPlayer<?> context) {
+		return convertMetadata2Legacy(buffer, bb, entityType, context, null, -1);
+	}
+
+	/**
+	 * Entries the delta cache says the client already has are left out
+	 */
+	public static String convertMetadata2Legacy(ByteBuf buffer, ByteBuf bb, int entityType, RewindPlayer<?> context,
+			EntityDeltaCache deltas, int deltaSlot) {
+		if (deltaSlot == -1) {
+			deltas = null;
+		}
+		if (entityType == -1) {
+			bb.writeByte(0x7F);
+			return null;
+		}
+		short[] rules = entityType >= 0 && entityType < MAX_ENTITY_TYPE ? RULES[entityType] : null;
+		String playerName = null;
+		while (true) {
+			int item = buffer.readUnsignedByte();
+			if (item == 0x7F) {
+				bb.writeByte(0x7F);
+				return playerName;
+			}
+			int rule = rules != null ? rules[item] : compileRule(entityType, item & 0x1F, item >> 5);
+			int op = rule >> 8;
+			if (op == OP_DROP) {
+				skipEntry(buffer, item >> 5, context);
+				continue;
+			}
+			int entryStart = bb.writerIndex();
+			bb.writeByte(rule);
+			switch (op) {
+			case OP_COPY:
+				copyEntry(buffer, bb, item >> 5, context);
+				break;
+			case OP_BYTE_TO_INT:
+				bb.writeInt(buffer.readByte());
+				break;
+			case OP_SHORT_TO_BYTE:
+				bb.writeByte(buffer.readShort());
+				break;
+			case OP_INT_TO_BYTE:
+				bb.writeByte(buffer.readInt());
+				break;
+			case OP_FLOAT_TO_INT:
+				bb.writeInt((int) buffer.readFloat());
+				break;
+			case OP_ZERO_BYTE:
+				buffer.skipBytes(1);
+				bb.writeByte(0);
+				break;
+			case OP_BYTE_SHR:
+				bb.writeByte(buffer.readByte() >> 1);
+				break;
+			case OP_BLOCK_STATE:
+				int i = buffer.readInt();
+				bb.writeInt(((i >> 12) << 16) | (i & 0xFFFF));
+				break;
+			case OP_PLAYER_NAME:
+				playerName = BufferUtils.readMCString(buffer, 32767);
+				BufferUtils.writeLegacyMCString(bb, playerName, 64);
+				break;
+			default:
+				throw new IllegalStateException();
+			}
+			if (deltas != null && !deltas.checkMetadataEntry(deltaSlot, bb, entryStart)) {
+				bb.writerIndex(entryStart);
+			}
+		}
+	}
+
+	private static void copyEntry(ByteBuf buffer, ByteBuf bb, int entryType, RewindPlayer<?> context) {
+		switch (entryType) {
+		case 0:
+			bb.writeByte(buffer.readByte());
+			break;
+		case 1:
+			bb.writeShort(buffer.readShort());
+			break;
+		case 2:
+		case 3:
+			bb.writeInt(buffer.readInt());
+			break;
+		case 4:
+			BufferUtils.convertMCString2Legacy(buffer, 32767, bb, 64);
+			break;
+		case 5:
+			BufferUtils.convertSlot2Legacy(buffer, bb, context);
+			break;
+		case 6:
+			bb.writeBytes(buffer, 12);
+			break;
+		}
+	}
+
+	private static void skipEntry(ByteBuf buffer, int entryType, RewindPlayer<?> context) {
+		switch (entryType) {
+		case 0:
+			buffer.skipBytes(1);
+			break;
+		case 1:
+			buffer.skipBytes(2);
+			break;
+		case 2:
+		case 3:
+			buffer.skipBytes(4);
+			break;
+		case 4:
+			int len = BufferUtils.readVarInt(buffer, 5);
+			if (len < 0 || len > 32767 * 4) {
+				throw new IndexOutOfBoundsException();
+			}
+			buffer.skipBytes(len);
+			break;
+		case 5:
+			buffer.readerIndex(BufferUtils.getSlotEnd(buffer, buffer.readerIndex(), context));
+			break;
+		case 6:
+		case 7:
+			buffer.skipBytes(12);
+			break;
+		}
+	}
+
+}
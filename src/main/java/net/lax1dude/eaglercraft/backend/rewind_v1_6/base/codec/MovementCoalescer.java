@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import net.lax1dude.eaglercraft.backend.server.api.collect.HPPC;
+import net.lax1dude.eaglercraft.backend.server.api.collect.IntIntMap;
+
+/**
+ * Accumulates entity movement packets until the channel is flushed and then
+ * writes the smallest set of legacy packets that produce the same result,
+ * positions are only needed to replace large moves with a teleport
+ */
+public class MovementCoalescer {
+
+	public static final boolean ENABLED = !Boolean.getBoolean("eaglerxrewind.disableMovementCoalescing");
+
+	private static final int FLAG_MOVE = 1;
+	private static final int FLAG_LOOK = 2;
+	private static final int FLAG_HEAD_LOOK = 4;
+
+	private final HPPC hppc;
+	private final EntityTable entities;
+	private IntIntMap entityToSlot;
+	private int count = 0;
+	private int[] entityIds;
+	private int[] flags;
+	private int[] deltaX;
+	private int[] deltaY;
+	private int[] deltaZ;
+	private byte[] yaw;
+	private byte[] pitch;
+	private byte[] headYaw;
+
+	public MovementCoalescer(HPPC hppc, EntityTable entities) {
+		this.hppc = hppc;
+		this.entities = entities;
+		this.entityToSlot = hppc.createIntIntHashMap(64);
+		allocSlots(16);
+	}
+
+	private void allocSlots(int cap) {
+		entityIds = new int[cap];
+		flags = new int[cap];
+		deltaX = new int[cap];
+		deltaY = new int[cap];
+		deltaZ = new int[cap];
+		yaw = new byte[cap];
+		pitch = new byte[cap];
+		headYaw = new byte[cap];
+	}
+
+	private int getSlot(int eid) {
+		int i = entityToSlot.getOrDefault(eid, -1);
+		if (i != -1) {
+			return i;
+		}
+		i = count++;
+		if (i == entityIds.length) {
+			int[] oldIds = entityIds, oldFlags = flags, oldX = deltaX, oldY = deltaY, oldZ = deltaZ;
+			byte[] oldYaw = yaw, oldPitch = pitch, oldHeadYaw = headYaw;
+			allocSlots(i << 1);
+			System.arraycopy(oldIds, 0, entityIds, 0, i);
+			System.arraycopy(oldFlags, 0, flags, 0, i);
+			System.arraycopy(oldX, 0, deltaX, 0, i);
+			System.arraycopy(oldY, 0, deltaY, 0, i);
+			System.arraycopy(oldZ, 0, deltaZ, 0, i);
+			System.arraycopy(oldYaw, 0, yaw, 0, i);
+			System.arraycopy(oldPitch, 0, pitch, 0, i);
+			System.arraycopy(oldHeadYaw, 0, headYaw, 0, i);
+		}
+		entityToSlot.put(eid, i);
+		entityIds[i] = eid;
+		flags[i] = 0;
+		deltaX[i] = 0;
+		deltaY[i] = 0;
+		deltaZ[i] = 0;
+		return i;
+	}
+
+	/**
+	 * Shrinks the slots back to their initial size if nothing is pending
+	 */
+	public void compact() {
+		if (count == 0 && entityIds.length > 16) {
+			entityToSlot = hppc.createIntIntHashMap(64);
+			allocSlots(16);
+		}
+	}
+
+	public boolean hasPending() {
+		return count > 0;
+	}
+
+	/**
+	 * Returns false for packets that can't affect how the client handles a
+	 * pending entity movement, anything else must drain the pending movements
+	 * before it is written to keep the packets in order
+	 */
+	public static boolean isBarrier(int pktId) {
+		switch (pktId) {
+		case 0x00: // keep alive
+		case 0x02: // chat
+		case 0x03: // time
+		case 0x14: // entity
+		case 0x15: // relative move
+		case 0x16: // look
+		case 0x17: // look and relative move
+		case 0x18: // teleport
+		case 0x19: // head look
+		case 0x21: // chunk data
+		case 0x22: // multi block change
+		case 0x23: // block change
+		case 0x26: // map chunk bulk
+		case 0x29: // sound
+		case 0x2A: // particle
+		case 0x2F: // set slot
+		case 0x30: // window items
+		case 0x38: // player list item
+		case 0x3B: // scoreboard objective
+		case 0x3C: // update score
+		case 0x3D: // display scoreboard
+		case 0x3E: // teams
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	public void handleRelativeMove(int eid, int dx, int dy, int dz) {
+		int i = getSlot(eid);
+		flags[i] |= FLAG_MOVE;
+		deltaX[i] += dx;
+		deltaY[i] += dy;
+		deltaZ[i] += dz;
+	}
+
+	public void handleLook(int eid, byte yaw, byte pitch) {
+		int i = getSlot(eid);
+		flags[i] |= FLAG_LOOK;
+		this.yaw[i] = yaw;
+		this.pitch[i] = pitch;
+	}
+
+	public void handleHeadLook(int eid, byte headYaw) {
+		int i = getSlot(eid);
+		flags[i] |= FLAG_HEAD_LOOK;
+		this.headYaw[i] = headYaw;
+	}
+
+	/**
+	 * A teleport replaces the position and look of any pending movement
+	 */
+	public void handleTeleport(int eid) {
+		int i = entityToSlot.getOrDefault(eid, -1);
+		if (i != -1) {
+			flags[i] &= FLAG_HEAD_LOOK;
+			deltaX[i] = 0;
+			deltaY[i] = 0;
+			deltaZ[i] = 0;
+		}
+	}
+
+	public void handleRemove(int eid) {
+		int i = entityToSlot.getOrDefault(eid, -1);
+		if (i != -1) {
+			flags[i] = 0;
+			deltaX[i] = 0;
+			deltaY[i] = 0;
+			deltaZ[i] = 0;
+		}
+	}
+
+	public void drain(ByteBufAllocator alloc, List<Object> out) {
+		if (count == 0) {
+			return;
+		}
+		ByteBuf bb = alloc.buffer(count * 16);
+		try {
+			for (int i = 0; i < count; ++i) {
+				writeSlot(bb, i);
+			}
+		} catch (Throwable t) {
+			bb.release();
+			throw t;
+		} finally {
+			entityToSlot.clear();
+			count = 0;
+		}
+		if (bb.isReadable()) {
+			out.add(bb);
+		} else {
+			bb.release();
+		}
+	}
+
+	private void writeSlot(ByteBuf bb, int i) {
+		int eid = entityIds[i];
+		int f = flags[i];
+		boolean look = (f & FLAG_LOOK) != 0;
+		if ((f & FLAG_MOVE) != 0) {
+			int dx = deltaX[i];
+			int dy = deltaY[i];
+			int dz = deltaZ[i];
+			if ((dx != clampByte(dx) || dy != clampByte(dy) || dz != clampByte(dz))) {
+				int slot = entities.findPositioned(eid);
+				if (slot != -1) {
+					bb.writeByte(0x22);
+					bb.writeInt(eid);
+					bb.writeInt(entities.getX(slot));
+					bb.writeInt(entities.getY(slot));
+					bb.writeInt(entities.getZ(slot));
+					bb.writeByte(entities.getYaw(slot));
+					bb.writeByte(entities.getPitch(slot));
+					look = false;
+					dx = dy = dz = 0;
+				}
+			}
+			while (dx != 0 || dy != 0 || dz != 0) {
+				int sx = clampByte(dx);
+				int sy = clampByte(dy);
+				int sz = clampByte(dz);
+				dx -= sx;
+				dy -= sy;
+				dz -= sz;
+				if (look && dx == 0 && dy == 0 && dz == 0) {
+					bb.writeByte(0x21);
+					bb.writeInt(eid);
+					bb.writeByte(sx);
+					bb.writeByte(sy);
+					bb.writeByte(sz);
+					bb.writeByte(yaw[i]);
+					bb.writeByte(pitch[i]);
+					look = false;
+				} else {
+					bb.writeByte(0x1F);
+					bb.writeInt(eid);
+					bb.writeByte(sx);
+					bb.writeByte(sy);
+					bb.writeByte(sz);
+				}
+			}
+		}
+		if (look) {
+			bb.writeByte(0x20);
+			bb.writeInt(eid);
+			bb.writeByte(yaw[i]);
+			bb.writeByte(pitch[i]);
+		}
+		if ((f & FLAG_HEAD_LOOK) != 0) {
+			bb.writeByte(0x23);
+			bb.writeInt(eid);
+			bb.writeByte(headYaw[i]);
+		}
+	}
+
+	private static int clampByte(int i) {
+		return i > 127 ? 127 : (i < -128 ? -128 : i);
+	}
+
+}
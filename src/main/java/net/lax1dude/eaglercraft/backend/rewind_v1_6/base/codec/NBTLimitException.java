@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2025 lax1dude. All Rights Reserved.
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
  * 
  * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
  * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
@@ -14,21 +14,18 @@
  * 
  */
 
-package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.zstream;
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
 
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-
-public class HackedDataOutputStream extends DataOutputStream {
+/**
+ * Thrown when NBT in either direction exceeds one of the limits in
+ * NBTTranscoder, counted in RewindMetrics
+ */
+public class NBTLimitException extends IndexOutOfBoundsException {
 
-	public HackedDataOutputStream(OutputStream out) {
-		super(out);
-	}
+	private static final long serialVersionUID = 1L;
 
-	@Override
-	public void close() throws IOException {
-		this.out.close();
+	public NBTLimitException(String message) {
+		super(message);
 	}
 
 }
@@ -0,0 +1,739 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.RewindPlayer;
+
+/**
+ * Converts 1.8 item NBT to the gzipped 1.6 format by walking the tags directly
+ * on the ByteBuf. Unmodified tags are copied as raw bytes and only the names of
+ * compound and list tags are compared (as bytes) against the tags that need to
+ * be changed. The 1.6 client is sent uncompressed "stored" deflate blocks since
+ * the websocket is already compressed, so the gzip framing is written by hand
+ * instead of going through a Deflater. Most item NBT contains none of the tags
+ * that need to be changed, so it is scanned first and copied in one go when
+ * nothing needs to be transformed. The scan also enforces the size limits in
+ * both directions before any output is produced.
+ */
+public class NBTTranscoder {
+
+	public static final int MAX_DEPTH = Integer.getInteger("eaglerxrewind.nbtMaxDepth", 512);
+	public static final int MAX_TAGS = Integer.getInteger("eaglerxrewind.nbtMaxTags", 32768);
+	public static final int MAX_LIST_LENGTH = Integer.getInteger("eaglerxrewind.nbtMaxListLength", 16384);
+	public static final int MAX_INFLATED = Integer.getInteger("eaglerxrewind.nbtMaxInflated", 65535);
+
+	private static final int TAG_END = 0;
+	private static final int TAG_BYTE = 1;
+	private static final int TAG_SHORT = 2;
+	private static final int TAG_INT = 3;
+	private static final int TAG_LONG = 4;
+	private static final int TAG_FLOAT = 5;
+	private static final int TAG_DOUBLE = 6;
+	private static final int TAG_BYTE_ARRAY = 7;
+	private static final int TAG_STRING = 8;
+	private static final int TAG_LIST = 9;
+	private static final int TAG_COMPOUND = 10;
+	private static final int TAG_INT_ARRAY = 11;
+
+	private static final int GZIP_OVERHEAD = 10 + 5 + 8;
+
+	private static final byte[] GZIP_HEADER = new byte[] { (byte) 0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0,
+			(byte) 255 };
+
+	private static final byte[] NAME_SPAWN_DATA = bytes("SpawnData");
+	private static final byte[] NAME_SKULL_OWNER = bytes("SkullOwner");
+	private static final byte[] NAME_OWNER = bytes("Owner");
+	private static final byte[] NAME_SPAWN_POTENTIALS = bytes("SpawnPotentials");
+	private static final byte[] NAME_PAGES = bytes("pages");
+	private static final byte[] NAME_ENCH = bytes("ench");
+	private static final byte[] NAME_NAME = bytes("Name");
+	private static final byte[] NAME_ID = bytes("id");
+
+	private static final byte[] LEGACY_SKULL_OWNER = name("SkullOwner");
+	private static final byte[] LEGACY_EXTRA_TYPE = name("ExtraType");
+
+	private static final byte[][] NO_TRIGGERS = new byte[0][];
+	private static final byte[][] COMPOUND_TRIGGERS = new byte[][] { NAME_SPAWN_DATA, NAME_SKULL_OWNER,
+			NAME_OWNER };
+	private static final byte[][] LIST_TRIGGERS = new byte[][] { NAME_SPAWN_POTENTIALS, NAME_PAGES, NAME_ENCH };
+	private static final byte[][] LEGACY_COMPOUND_TRIGGERS = new byte[][] { bytes("ExtraType") };
+	private static final byte[][] LEGACY_LIST_TRIGGERS = new byte[][] { NAME_PAGES };
+
+	private static byte[] bytes(String str) {
+		byte[] ret = new byte[str.length()];
+		for (int i = 0; i < ret.length; ++i) {
+			ret[i] = (byte) str.charAt(i);
+		}
+		return ret;
+	}
+
+	private static byte[] name(String str) {
+		byte[] ret = new byte[2 + str.length()];
+		ret[0] = (byte) (str.length() >>> 8);
+		ret[1] = (byte) str.length();
+		for (int i = 0; i < str.length(); ++i) {
+			ret[i + 2] = (byte) str.charAt(i);
+		}
+		return ret;
+	}
+
+	private final RewindPlayer<?> player;
+	private final CRC32 crc = new CRC32();
+	private int tagCount;
+	private boolean triggered;
+
+	public NBTTranscoder(RewindPlayer<?> player) {
+		this.player = player;
+	}
+
+	/**
+	 * Reads a 1.8 NBT tag (or a single 0 byte if there is none) and writes the
+	 * short length prefixed gzipped 1.6 NBT, or -1
+	 */
+	public void convertNBT2Legacy(ByteBuf in, ByteBuf out) {
+		int type = in.readUnsignedByte();
+		if (type == TAG_END) {
+			out.writeShort(-1);
+			return;
+		}
+		try {
+			int tagStart = in.readerIndex() - 1;
+			int tagEnd = scanTag(in, tagStart, in.writerIndex(), COMPOUND_TRIGGERS, LIST_TRIGGERS);
+			boolean transform = triggered;
+			ItemNBTCache cache = player.getRewind().getItemNBTCache();
+			int tagLen = tagEnd - tagStart;
+			if (cache.isEnabled() && tagLen <= ItemNBTCache.MAX_KEY_LENGTH) {
+				if (cache.writeCached(in, tagStart, tagLen, out)) {
+					in.readerIndex(tagEnd);
+					return;
+				}
+				int outStart = out.writerIndex();
+				transcode(in, out, type, tagEnd, transform);
+				cache.store(in, tagStart, tagLen, out, outStart);
+			} else {
+				transcode(in, out, type, tagEnd, transform);
+			}
+		} catch (NBTLimitException ex) {
+			player.getRewind().getMetrics().handleNBTViolation();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Like convertNBT2Legacy but always goes through the visitor and skips the
+	 * cache, for comparing against the pre-scan in benchmarks
+	 */
+	void convertNBT2LegacyFull(ByteBuf in, ByteBuf out) {
+		int type = in.readUnsignedByte();
+		if (type == TAG_END) {
+			out.writeShort(-1);
+			return;
+		}
+		int tagEnd = scanTag(in, in.readerIndex() - 1, in.writerIndex(), NO_TRIGGERS, NO_TRIGGERS);
+		transcode(in, out, type, tagEnd, true);
+	}
+
+	private void transcode(ByteBuf in, ByteBuf out, int type, int tagEnd, boolean transform) {
+		int lenAt = out.writerIndex();
+		out.writeShort(0);
+		out.writeBytes(GZIP_HEADER);
+		int blockAt = out.writerIndex();
+		out.writeZero(5);
+		int dataStart = out.writerIndex();
+		if (!transform) {
+			int tagStart = in.readerIndex() - 1;
+			out.writeBytes(in, tagStart, tagEnd - tagStart);
+			in.readerIndex(tagEnd);
+		} else {
+			out.writeByte(type);
+			copyBytes(in, out, in.readUnsignedShort(), true);
+			copyPayload(in, out, type, 0);
+		}
+		int dataLen = out.writerIndex() - dataStart;
+		if (dataLen > MAX_INFLATED || dataLen + GZIP_OVERHEAD > Short.MAX_VALUE) {
+			out.writerIndex(lenAt);
+			throw new NBTLimitException("NBT is too large for a 1.6 item: " + dataLen);
+		}
+		crc.reset();
+		if (out.hasArray()) {
+			crc.update(out.array(), out.arrayOffset() + dataStart, dataLen);
+		} else {
+			crc.update(out.nioBuffer(dataStart, dataLen));
+		}
+		out.setByte(blockAt, 1);
+		setShortLE(out, blockAt + 1, dataLen);
+		setShortLE(out, blockAt + 3, ~dataLen);
+		writeIntLE(out, (int) crc.getValue());
+		writeIntLE(out, dataLen);
+		out.setShort(lenAt, out.writerIndex() - lenAt - 2);
+	}
+
+	/**
+	 * Decompresses 1.6 NBT into the output and converts it back to 1.8 with the
+	 * visitor only if it contains any tags that need to be changed
+	 */
+	public void convertLegacyNBT(DataInputStream gzipIn, ByteBuf out) throws IOException {
+		try {
+			convertLegacyNBT0(gzipIn, out);
+		} catch (NBTLimitException ex) {
+			player.getRewind().getMetrics().handleNBTViolation();
+			throw ex;
+		}
+	}
+
+	private void convertLegacyNBT0(DataInputStream gzipIn, ByteBuf out) throws IOException {
+		byte[] inflateBuffer = player.getInflateBuffer();
+		int start = out.writerIndex();
+		int n;
+		while ((n = gzipIn.read(inflateBuffer)) != -1) {
+			out.writeBytes(inflateBuffer, 0, n);
+		}
+		int tagEnd = scanTag(out, start, out.writerIndex(), LEGACY_COMPOUND_TRIGGERS, LEGACY_LIST_TRIGGERS);
+		out.writerIndex(tagEnd);
+		if (!triggered) {
+			return;
+		}
+		int len = tagEnd - start;
+		ByteBuf tmp = out.alloc().heapBuffer(len);
+		try {
+			tmp.writeBytes(out, start, len);
+			out.writerIndex(start);
+			try (ByteBufInputStream bbis = new ByteBufInputStream(tmp);
+					ByteBufOutputStream bbos = new ByteBufOutputStream(out)) {
+				RewindNBTVisitorReverse.apply(player.getNBTContext(), bbis, bbos);
+			}
+		} finally {
+			tmp.release();
+		}
+	}
+
+	/**
+	 * Returns the index after the tag starting at i (a single 0 byte if there is
+	 * no tag)
+	 */
+	public int getTagEnd(ByteBuf buf, int i, int end) {
+		try {
+			return scanTag(buf, i, end, NO_TRIGGERS, NO_TRIGGERS);
+		} catch (NBTLimitException ex) {
+			player.getRewind().getMetrics().handleNBTViolation();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Returns the index after the tag starting at i and sets triggered if it
+	 * contains any of the trigger tags
+	 */
+	private int scanTag(ByteBuf buf, int i, int end, byte[][] compoundTriggers, byte[][] listTriggers) {
+		tagCount = 0;
+		triggered = false;
+		need(i, 1, end);
+		int type = buf.getUnsignedByte(i++);
+		if (type == TAG_END) {
+			return i;
+		}
+		need(i, 2, end);
+		i += 2 + buf.getUnsignedShort(i);
+		return scanPayload(buf, i, end, type, 0, compoundTriggers, listTriggers);
+	}
+
+	private int scanPayload(ByteBuf buf, int i, int end, int type, int depth, byte[][] compoundTriggers,
+			byte[][] listTriggers) {
+		switch (type) {
+		case TAG_BYTE:
+			need(i, 1, end);
+			return i + 1;
+		case TAG_SHORT:
+			need(i, 2, end);
+			return i + 2;
+		case TAG_INT:
+		case TAG_FLOAT:
+			need(i, 4, end);
+			return i + 4;
+		case TAG_LONG:
+		case TAG_DOUBLE:
+			need(i, 8, end);
+			return i + 8;
+		case TAG_BYTE_ARRAY: {
+			need(i, 4, end);
+			int n = buf.getInt(i);
+			i += 4;
+			need(i, n, end);
+			return i + n;
+		}
+		case TAG_STRING: {
+			need(i, 2, end);
+			int n = buf.getUnsignedShort(i);
+			i += 2;
+			need(i, n, end);
+			return i + n;
+		}
+		case TAG_LIST: {
+			checkDepth(++depth);
+			need(i, 5, end);
+			int itemType = buf.getUnsignedByte(i);
+			int n = buf.getInt(i + 1);
+			i += 5;
+			if (n <= 0) {
+				return i;
+			}
+			if (n > MAX_LIST_LENGTH) {
+				throw new NBTLimitException("NBT list is too long: " + n);
+			}
+			countTags(n);
+			switch (itemType) {
+			case TAG_BYTE:
+				return needArray(i, n, 0, end);
+			case TAG_SHORT:
+				return needArray(i, n, 1, end);
+			case TAG_INT:
+			case TAG_FLOAT:
+				return needArray(i, n, 2, end);
+			case TAG_LONG:
+			case TAG_DOUBLE:
+				return needArray(i, n, 3, end);
+			default:
+				for (int j = 0; j < n; ++j) {
+					i = scanPayload(buf, i, end, itemType, depth, compoundTriggers, listTriggers);
+				}
+				return i;
+			}
+		}
+		case TAG_COMPOUND: {
+			checkDepth(++depth);
+			for (;;) {
+				need(i, 1, end);
+				int t = buf.getUnsignedByte(i++);
+				if (t == TAG_END) {
+					return i;
+				}
+				need(i, 2, end);
+				int nameLen = buf.getUnsignedShort(i);
+				i += 2;
+				need(i, nameLen, end);
+				countTags(1);
+				if (!triggered && ((t == TAG_COMPOUND && matchesAny(buf, i, nameLen, compoundTriggers))
+						|| (t == TAG_LIST && matchesAny(buf, i, nameLen, listTriggers)))) {
+					triggered = true;
+				}
+				i = scanPayload(buf, i + nameLen, end, t, depth, compoundTriggers, listTriggers);
+			}
+		}
+		case TAG_INT_ARRAY:
+			need(i, 4, end);
+			return needArray(i + 4, buf.getInt(i), 2, end);
+		default:
+			throw new IndexOutOfBoundsException("Unknown NBT tag type: " + type);
+		}
+	}
+
+	private void countTags(int n) {
+		if ((tagCount += n) > MAX_TAGS) {
+			throw new NBTLimitException("NBT has too many tags");
+		}
+	}
+
+	private static void need(int i, int n, int end) {
+		if (n < 0 || n > end - i) {
+			throw new IndexOutOfBoundsException("Invalid NBT length: " + n);
+		}
+	}
+
+	private static int needArray(int i, int n, int shift, int end) {
+		if (n < 0 || n > ((end - i) >> shift)) {
+			throw new IndexOutOfBoundsException("Invalid NBT length: " + n);
+		}
+		return i + (n << shift);
+	}
+
+	private static boolean matchesAny(ByteBuf buf, int start, int len, byte[][] names) {
+		for (int i = 0; i < names.length; ++i) {
+			if (matches(buf, start, len, names[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void copyPayload(ByteBuf in, ByteBuf out, int type, int depth) {
+		switch (type) {
+		case TAG_BYTE:
+			out.writeByte(in.readByte());
+			break;
+		case TAG_SHORT:
+			out.writeShort(in.readShort());
+			break;
+		case TAG_INT:
+		case TAG_FLOAT:
+			out.writeInt(in.readInt());
+			break;
+		case TAG_LONG:
+		case TAG_DOUBLE:
+			out.writeLong(in.readLong());
+			break;
+		case TAG_BYTE_ARRAY: {
+			int n = in.readInt();
+			out.writeInt(n);
+			copyBytes(in, out, n, true);
+			break;
+		}
+		case TAG_STRING:
+			copyBytes(in, out, in.readUnsignedShort(), true);
+			break;
+		case TAG_LIST:
+			copyList(in, out, depth + 1);
+			break;
+		case TAG_COMPOUND:
+			copyCompound(in, out, depth + 1);
+			break;
+		case TAG_INT_ARRAY: {
+			int n = in.readInt();
+			out.writeInt(n);
+			copyBytes(in, out, n * 4l, false);
+			break;
+		}
+		default:
+			throw new IndexOutOfBoundsException("Unknown NBT tag type: " + type);
+		}
+	}
+
+	private void skipPayload(ByteBuf in, int type, int depth) {
+		switch (type) {
+		case TAG_BYTE:
+			in.skipBytes(1);
+			break;
+		case TAG_SHORT:
+			in.skipBytes(2);
+			break;
+		case TAG_INT:
+		case TAG_FLOAT:
+			in.skipBytes(4);
+			break;
+		case TAG_LONG:
+		case TAG_DOUBLE:
+			in.skipBytes(8);
+			break;
+		case TAG_BYTE_ARRAY:
+			skipBytes(in, in.readInt());
+			break;
+		case TAG_STRING:
+			in.skipBytes(in.readUnsignedShort());
+			break;
+		case TAG_LIST: {
+			checkDepth(depth + 1);
+			int itemType = in.readUnsignedByte();
+			int n = in.readInt();
+			for (int i = 0; i < n; ++i) {
+				skipPayload(in, itemType, depth + 1);
+			}
+			break;
+		}
+		case TAG_COMPOUND: {
+			checkDepth(depth + 1);
+			int t;
+			while ((t = in.readUnsignedByte()) != TAG_END) {
+				in.skipBytes(in.readUnsignedShort());
+				skipPayload(in, t, depth + 1);
+			}
+			break;
+		}
+		case TAG_INT_ARRAY:
+			skipBytes(in, in.readInt() * 4l);
+			break;
+		default:
+			throw new IndexOutOfBoundsException("Unknown NBT tag type: " + type);
+		}
+	}
+
+	private void copyCompound(ByteBuf in, ByteBuf out, int depth) {
+		checkDepth(depth);
+		int type;
+		while ((type = in.readUnsignedByte()) != TAG_END) {
+			int nameLen = in.readUnsignedShort();
+			int nameAt = in.readerIndex();
+			if (type == TAG_COMPOUND) {
+				if (matches(in, nameAt, nameLen, NAME_SPAWN_DATA)) {
+					in.skipBytes(nameLen);
+					skipPayload(in, type, depth);
+					continue;
+				} else if (matches(in, nameAt, nameLen, NAME_SKULL_OWNER)) {
+					in.skipBytes(nameLen);
+					convertSkullOwner(in, out, LEGACY_SKULL_OWNER, depth + 1);
+					continue;
+				} else if (matches(in, nameAt, nameLen, NAME_OWNER)) {
+					in.skipBytes(nameLen);
+					convertSkullOwner(in, out, LEGACY_EXTRA_TYPE, depth + 1);
+					continue;
+				}
+			} else if (type == TAG_LIST) {
+				if (matches(in, nameAt, nameLen, NAME_SPAWN_POTENTIALS)) {
+					in.skipBytes(nameLen);
+					skipPayload(in, type, depth);
+					continue;
+				} else if (matches(in, nameAt, nameLen, NAME_PAGES)) {
+					out.writeByte(type);
+					copyBytes(in, out, nameLen, true);
+					convertPages(in, out, depth + 1);
+					continue;
+				} else if (matches(in, nameAt, nameLen, NAME_ENCH)) {
+					out.writeByte(type);
+					copyBytes(in, out, nameLen, true);
+					convertEnchantments(in, out, depth + 1);
+					continue;
+				}
+			}
+			out.writeByte(type);
+			copyBytes(in, out, nameLen, true);
+			copyPayload(in, out, type, depth);
+		}
+		out.writeByte(TAG_END);
+	}
+
+	private void copyList(ByteBuf in, ByteBuf out, int depth) {
+		checkDepth(depth);
+		int itemType = in.readUnsignedByte();
+		int n = in.readInt();
+		out.writeByte(itemType);
+		out.writeInt(n);
+		copyListItems(in, out, itemType, n, depth);
+	}
+
+	private void copyListItems(ByteBuf in, ByteBuf out, int itemType, int n, int depth) {
+		if (n <= 0) {
+			return;
+		}
+		switch (itemType) {
+		case TAG_BYTE:
+			copyBytes(in, out, n, false);
+			break;
+		case TAG_SHORT:
+			copyBytes(in, out, n * 2l, false);
+			break;
+		case TAG_INT:
+		case TAG_FLOAT:
+			copyBytes(in, out, n * 4l, false);
+			break;
+		case TAG_LONG:
+		case TAG_DOUBLE:
+			copyBytes(in, out, n * 8l, false);
+			break;
+		default:
+			for (int i = 0; i < n; ++i) {
+				copyPayload(in, out, itemType, depth);
+			}
+			break;
+		}
+	}
+
+	/**
+	 * 1.6 has the skull owner as a string tag instead of a compound with the name
+	 * and skin properties, only the name is kept
+	 */
+	private void convertSkullOwner(ByteBuf in, ByteBuf out, byte[] legacyName, int depth) {
+		checkDepth(depth);
+		int type;
+		while ((type = in.readUnsignedByte()) != TAG_END) {
+			int nameLen = in.readUnsignedShort();
+			int nameAt = in.readerIndex();
+			in.skipBytes(nameLen);
+			if (type == TAG_STRING && matches(in, nameAt, nameLen, NAME_NAME)) {
+				out.writeByte(TAG_STRING);
+				out.writeBytes(legacyName);
+				copyBytes(in, out, in.readUnsignedShort(), true);
+			} else {
+				skipPayload(in, type, depth);
+			}
+		}
+	}
+
+	private void convertPages(ByteBuf in, ByteBuf out, int depth) {
+		checkDepth(depth);
+		int itemType = in.readUnsignedByte();
+		int n = in.readInt();
+		out.writeByte(itemType);
+		out.writeInt(n);
+		if (itemType != TAG_STRING) {
+			copyListItems(in, out, itemType, n, depth);
+			return;
+		}
+		ChatComponentCache chatCache = player.getRewind().getChatCache();
+		for (int i = 0; i < n; ++i) {
+			String json = readModifiedUTF8(in, in.readUnsignedShort());
+			writeModifiedUTF8(out, chatCache.convert(json, player.getComponentHelper()));
+		}
+	}
+
+	/**
+	 * Enchantments that don't exist in 1.6 (depth strider, luck of the sea and
+	 * lure) become protection
+	 */
+	private void convertEnchantments(ByteBuf in, ByteBuf out, int depth) {
+		checkDepth(depth);
+		int itemType = in.readUnsignedByte();
+		int n = in.readInt();
+		out.writeByte(itemType);
+		out.writeInt(n);
+		if (itemType != TAG_COMPOUND) {
+			copyListItems(in, out, itemType, n, depth);
+			return;
+		}
+		for (int i = 0; i < n; ++i) {
+			int type;
+			while ((type = in.readUnsignedByte()) != TAG_END) {
+				int nameLen = in.readUnsignedShort();
+				boolean isId = (type == TAG_SHORT || type == TAG_INT)
+						&& matches(in, in.readerIndex(), nameLen, NAME_ID);
+				out.writeByte(type);
+				copyBytes(in, out, nameLen, true);
+				if (isId) {
+					int value = type == TAG_SHORT ? in.readShort() : in.readInt();
+					int id = value & 0xFFFF;
+					if (id == 8 || id == 62 || id == 61) {
+						value = 0;
+					}
+					if (type == TAG_SHORT) {
+						out.writeShort(value);
+					} else {
+						out.writeInt(value);
+					}
+				} else {
+					copyPayload(in, out, type, depth + 1);
+				}
+			}
+			out.writeByte(TAG_END);
+		}
+	}
+
+	private static void checkDepth(int depth) {
+		if (depth > MAX_DEPTH) {
+			throw new NBTLimitException("NBT is nested too deep");
+		}
+	}
+
+	/**
+	 * Copies len bytes, with the short or int length in front of them already
+	 * written unless writeLen is true (then it's written as a short)
+	 */
+	private static void copyBytes(ByteBuf in, ByteBuf out, long len, boolean writeLen) {
+		if (len < 0l || len > in.readableBytes()) {
+			throw new IndexOutOfBoundsException("Invalid NBT length: " + len);
+		}
+		if (writeLen) {
+			out.writeShort((int) len);
+		}
+		out.writeBytes(in, (int) len);
+	}
+
+	private static void skipBytes(ByteBuf in, long len) {
+		if (len < 0l || len > in.readableBytes()) {
+			throw new IndexOutOfBoundsException("Invalid NBT length: " + len);
+		}
+		in.skipBytes((int) len);
+	}
+
+	private static boolean matches(ByteBuf in, int start, int len, byte[] name) {
+		if (len != name.length) {
+			return false;
+		}
+		for (int i = 0; i < len; ++i) {
+			if (in.getByte(start + i) != name[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String readModifiedUTF8(ByteBuf in, int len) {
+		if (len > in.readableBytes()) {
+			throw new IndexOutOfBoundsException("Invalid NBT length: " + len);
+		}
+		char[] chars = new char[len];
+		int cnt = 0;
+		int end = in.readerIndex() + len;
+		while (in.readerIndex() < end) {
+			int b = in.readUnsignedByte();
+			if (b < 0x80) {
+				chars[cnt++] = (char) b;
+			} else if ((b & 0xE0) == 0xC0) {
+				chars[cnt++] = (char) (((b & 0x1F) << 6) | (in.readUnsignedByte() & 0x3F));
+			} else if ((b & 0xF0) == 0xE0) {
+				int b2 = in.readUnsignedByte();
+				int b3 = in.readUnsignedByte();
+				chars[cnt++] = (char) (((b & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+			} else {
+				throw new IndexOutOfBoundsException("Malformed NBT string");
+			}
+		}
+		if (in.readerIndex() != end) {
+			throw new IndexOutOfBoundsException("Malformed NBT string");
+		}
+		return new String(chars, 0, cnt);
+	}
+
+	private static void writeModifiedUTF8(ByteBuf out, String str) {
+		int len = str.length();
+		int utfLen = 0;
+		for (int i = 0; i < len; ++i) {
+			char c = str.charAt(i);
+			if (c != 0 && c < 0x80) {
+				++utfLen;
+			} else if (c < 0x800) {
+				utfLen += 2;
+			} else {
+				utfLen += 3;
+			}
+		}
+		if (utfLen > 65535) {
+			throw new IndexOutOfBoundsException("NBT string too long");
+		}
+		out.ensureWritable(2 + utfLen);
+		out.writeShort(utfLen);
+		for (int i = 0; i < len; ++i) {
+			char c = str.charAt(i);
+			if (c != 0 && c < 0x80) {
+				out.writeByte(c);
+			} else if (c < 0x800) {
+				out.writeByte(0xC0 | (c >> 6));
+				out.writeByte(0x80 | (c & 0x3F));
+			} else {
+				out.writeByte(0xE0 | (c >> 12));
+				out.writeByte(0x80 | ((c >> 6) & 0x3F));
+				out.writeByte(0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	private static void setShortLE(ByteBuf out, int index, int value) {
+		out.setByte(index, value);
+		out.setByte(index + 1, value >>> 8);
+	}
+
+	private static void writeIntLE(ByteBuf out, int value) {
+		out.writeByte(value);
+		out.writeByte(value >>> 8);
+		out.writeByte(value >>> 16);
+		out.writeByte(value >>> 24);
+	}
+
+}
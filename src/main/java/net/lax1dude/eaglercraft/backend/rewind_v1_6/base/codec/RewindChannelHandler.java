@@ -16,12 +16,18 @@
 
 package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.util.concurrent.ScheduledFuture;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.IRewindLogger;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.RewindMetrics;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.RewindPlayer;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.RewindProtocol;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.TabListTracker;
@@ -32,10 +38,24 @@ import net.lax1dude.eaglercraft.backend.server.api.rewind.IMessageController;
 
 public class RewindChannelHandler<PlayerObject> extends MessageToMessageCodec<ByteBuf, ByteBuf> {
 
+	public static final int OUTBOUND_QUOTA = Integer.getInteger("eaglerxrewind.outboundQuota", 8388608);
+	public static final long OUTBOUND_QUOTA_GLOBAL = Long.getLong("eaglerxrewind.outboundQuotaGlobal", 536870912l);
+	public static final int OUTBOUND_QUOTA_GRACE = Integer.getInteger("eaglerxrewind.outboundQuotaGrace", 5000);
+
+	private static final ByteBuf KICK_BACKLOG = BufferUtils.createLegacyKickPacket("Connection is too slow");
+
 	protected final RewindPlayer<PlayerObject> player;
 	protected Codec<PlayerObject> encoder;
 	protected Codec<PlayerObject> decoder;
 
+	private int encodedBytes = 0;
+	private long pendingBytes = 0l;
+	private int backlogBucket = -1;
+	private long overQuotaSince = 0l;
+	private ScheduledFuture<?> quotaCheck;
+	private boolean evicted = false;
+	private final List<Object> flushOut = new ArrayList<>(4);
+
 	public static abstract class Codec<PlayerObject> {
 
 		private RewindChannelHandler<PlayerObject> codec;
@@ -44,6 +64,26 @@ public class RewindChannelHandler<PlayerObject> extends MessageToMessageCodec<By
 
 		protected abstract void encode(ChannelHandlerContext ctx, ByteBuf buf, List<Object> out) throws Exception;
 
+		protected void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		}
+
+		protected void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		}
+
+		/**
+		 * Called before the channel is flushed, anything added to the list is
+		 * written first
+		 */
+		protected void flush(ChannelHandlerContext ctx, List<Object> out) throws Exception {
+		}
+
+		/**
+		 * Called when the player goes idle, release anything that is rebuilt on
+		 * demand
+		 */
+		protected void compact() {
+		}
+
 		protected final RewindChannelHandler<PlayerObject> handler() {
 			return codec;
 		}
@@ -72,6 +112,10 @@ public class RewindChannelHandler<PlayerObject> extends MessageToMessageCodec<By
 			return codec.player.getComponentHelper();
 		}
 
+		protected final ChatComponentCache chatCache() {
+			return codec.player.getRewind().getChatCache();
+		}
+
 		protected final IMessageController messageController() {
 			return codec.player.getMessageController();
 		}
@@ -129,11 +173,173 @@ public class RewindChannelHandler<PlayerObject> extends MessageToMessageCodec<By
 	@Override
 	protected void encode(ChannelHandlerContext ctx, ByteBuf buf, List<Object> out) throws Exception {
 		encoder.encode(ctx, buf, out);
+		if (OUTBOUND_QUOTA > 0) {
+			int bytes = 0;
+			for (int i = 0, l = out.size(); i < l; ++i) {
+				Object o = out.get(i);
+				if (o instanceof ByteBuf) {
+					bytes += ((ByteBuf) o).readableBytes();
+				}
+			}
+			encodedBytes += bytes;
+		}
+	}
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if (OUTBOUND_QUOTA <= 0 || evicted) {
+			super.write(ctx, msg, promise);
+			return;
+		}
+		if (promise.isVoid()) {
+			promise = promise.unvoid();
+		}
+		encodedBytes = 0;
+		super.write(ctx, msg, promise);
+		int bytes = encodedBytes;
+		if (bytes > 0) {
+			encodedBytes = 0;
+			trackPendingBytes(ctx, bytes, promise);
+		}
+	}
+
+	@Override
+	public void flush(ChannelHandlerContext ctx) throws Exception {
+		try {
+			encoder.flush(ctx, flushOut);
+			for (int i = 0, l = flushOut.size(); i < l; ++i) {
+				Object o = flushOut.get(i);
+				if (OUTBOUND_QUOTA > 0 && !evicted && o instanceof ByteBuf) {
+					int bytes = ((ByteBuf) o).readableBytes();
+					ChannelPromise promise = ctx.newPromise();
+					ctx.write(o, promise);
+					trackPendingBytes(ctx, bytes, promise);
+				} else {
+					ctx.write(o);
+				}
+			}
+		} finally {
+			flushOut.clear();
+		}
+		ctx.flush();
+	}
+
+	private void trackPendingBytes(ChannelHandlerContext ctx, int bytes, ChannelPromise promise) {
+		addPendingBytes(ctx, bytes);
+		promise.addListener((f) -> releasePendingBytes(bytes));
+	}
+
+	private void addPendingBytes(ChannelHandlerContext ctx, int bytes) {
+		pendingBytes += bytes;
+		RewindMetrics metrics = player.getRewind().getMetrics();
+		metrics.addPendingOutboundBytes(bytes);
+		updateBacklogBucket(metrics);
+		if (isOverQuota(metrics)) {
+			if (overQuotaSince == 0l) {
+				overQuotaSince = System.nanoTime();
+				if (quotaCheck == null) {
+					quotaCheck = ctx.executor().schedule(() -> checkQuota(ctx), OUTBOUND_QUOTA_GRACE,
+							TimeUnit.MILLISECONDS);
+				}
+			}
+		} else {
+			overQuotaSince = 0l;
+		}
+	}
+
+	private void releasePendingBytes(int bytes) {
+		pendingBytes -= bytes;
+		RewindMetrics metrics = player.getRewind().getMetrics();
+		metrics.addPendingOutboundBytes(-bytes);
+		updateBacklogBucket(metrics);
+		if (overQuotaSince != 0l && !isOverQuota(metrics)) {
+			overQuotaSince = 0l;
+		}
+	}
+
+	private boolean isOverQuota(RewindMetrics metrics) {
+		if (pendingBytes > OUTBOUND_QUOTA) {
+			return true;
+		}
+		if (OUTBOUND_QUOTA_GLOBAL > 0l && metrics.getPendingOutboundBytes() > OUTBOUND_QUOTA_GLOBAL) {
+			int sessions = player.getRewind().getAdmissionController().getSessionCount();
+			return pendingBytes > OUTBOUND_QUOTA_GLOBAL / (sessions > 0 ? sessions : 1);
+		}
+		return false;
+	}
+
+	private void updateBacklogBucket(RewindMetrics metrics) {
+		if (backlogBucket >= 0) {
+			int i = RewindMetrics.getBacklogBucket(pendingBytes);
+			if (i != backlogBucket) {
+				metrics.removeFromBacklogBucket(backlogBucket);
+				metrics.addToBacklogBucket(i);
+				backlogBucket = i;
+			}
+		}
+	}
+
+	private void checkQuota(ChannelHandlerContext ctx) {
+		quotaCheck = null;
+		if (overQuotaSince == 0l || evicted) {
+			return;
+		}
+		long elapsed = (System.nanoTime() - overQuotaSince) / 1000000l;
+		if (elapsed >= OUTBOUND_QUOTA_GRACE) {
+			evicted = true;
+			player.getRewind().getMetrics().handleBacklogEviction();
+			player.logger().warn("Disconnecting slow client with " + pendingBytes + " bytes of pending packets");
+			ctx.writeAndFlush(KICK_BACKLOG.duplicate()).addListener(ChannelFutureListener.CLOSE);
+			ctx.executor().schedule(() -> {
+				ctx.close();
+			}, 1000l, TimeUnit.MILLISECONDS);
+		} else {
+			quotaCheck = ctx.executor().schedule(() -> checkQuota(ctx), OUTBOUND_QUOTA_GRACE - elapsed,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Trims the state of an idle connection, see RewindPlayer.checkIdle
+	 */
+	public void compact() {
+		encoder.compact();
+		if (decoder != encoder) {
+			decoder.compact();
+		}
+		player.compact();
+	}
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		if (OUTBOUND_QUOTA > 0) {
+			backlogBucket = 0;
+			player.getRewind().getMetrics().addToBacklogBucket(0);
+		}
+		encoder.handlerAdded(ctx);
+		if (decoder != encoder) {
+			decoder.handlerAdded(ctx);
+		}
 	}
 
 	@Override
 	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
-		player.releaseNatives();
+		try {
+			encoder.handlerRemoved(ctx);
+			if (decoder != encoder) {
+				decoder.handlerRemoved(ctx);
+			}
+		} finally {
+			if (quotaCheck != null) {
+				quotaCheck.cancel(false);
+				quotaCheck = null;
+			}
+			if (backlogBucket >= 0) {
+				player.getRewind().getMetrics().removeFromBacklogBucket(backlogBucket);
+				backlogBucket = -1;
+			}
+			player.handleConnectionClosed();
+		}
 	}
 
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.IRewindLogger;
+
+/**
+ * Shared by all connections, stops translating a 1.8 packet id after it fails
+ * too many times in a row and periodically lets it through again to retry.
+ * 
+ * Item NBT over the size limits is not counted, and packets the codec tracks
+ * state from are never dropped. Failures that are not counted are still only
+ * logged once per window.
+ */
+public class RewindCircuitBreaker {
+
+	public static final int FAILURE_THRESHOLD = Integer.getInteger("eaglerxrewind.breakerThreshold", 20);
+	public static final int FAILURE_WINDOW = Integer.getInteger("eaglerxrewind.breakerWindow", 10000);
+	public static final int OPEN_TIME = Integer.getInteger("eaglerxrewind.breakerOpenTime", 30000);
+
+	private static final int STATE_CLOSED = 0;
+	private static final int STATE_OPEN = 1;
+	private static final int STATE_HALF_OPEN = 2;
+
+	private static final boolean[] STATEFUL = new boolean[256];
+
+	static {
+		int[] ids = new int[] { 0x00, 0x01, 0x07, 0x08, 0x0C, 0x0E, 0x0F, 0x10, 0x11, 0x13, 0x1B, 0x2D, 0x2E, 0x2F,
+				0x30, 0x32, 0x38, 0x3B, 0x3C, 0x3D, 0x3E, 0x3F, 0x40 };
+		for (int i = 0; i < ids.length; ++i) {
+			STATEFUL[ids[i]] = true;
+		}
+	}
+
+	private static class Slot {
+
+		private volatile int state = STATE_CLOSED;
+		private long openUntil;
+		private long windowStart;
+		private int failures;
+		private long dropped;
+		private boolean logged;
+		private long lastLogged;
+		private long suppressed;
+
+	}
+
+	private final IRewindLogger logger;
+	private final Slot[] slots;
+
+	public RewindCircuitBreaker(IRewindLogger logger) {
+		this.logger = logger;
+		this.slots = new Slot[256];
+		for (int i = 0; i < slots.length; ++i) {
+			slots[i] = new Slot();
+		}
+	}
+
+	private static long now() {
+		return System.nanoTime() / 1000000l;
+	}
+
+	/**
+	 * Returns true for packets that update entity, window, tab list or scoreboard
+	 * state, or that the client must answer
+	 */
+	public static boolean isStateful(int pktId) {
+		return pktId >= 0 && pktId < STATEFUL.length && STATEFUL[pktId];
+	}
+
+	public boolean allow(int pktId) {
+		if (FAILURE_THRESHOLD <= 0 || pktId < 0 || pktId >= slots.length || STATEFUL[pktId]) {
+			return true;
+		}
+		Slot slot = slots[pktId];
+		if (slot.state != STATE_OPEN) {
+			return true;
+		}
+		synchronized (slot) {
+			if (slot.state != STATE_OPEN) {
+				return true;
+			}
+			if (now() - slot.openUntil >= 0l) {
+				slot.state = STATE_HALF_OPEN;
+				logger.info(
+						String.format("Retrying 1.8 packet 0x%02X after dropping %d packets", pktId, slot.dropped));
+				slot.dropped = 0l;
+				return true;
+			}
+			++slot.dropped;
+			return false;
+		}
+	}
+
+	public void recordSuccess(int pktId) {
+		if (pktId < 0 || pktId >= slots.length) {
+			return;
+		}
+		Slot slot = slots[pktId];
+		if (slot.state == STATE_HALF_OPEN) {
+			synchronized (slot) {
+				if (slot.state == STATE_HALF_OPEN) {
+					slot.state = STATE_CLOSED;
+					slot.failures = 0;
+					logger.info(String.format("1.8 packet 0x%02X is translating successfully again", pktId));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the caller should log the exception, only the first failure
+	 * of each window is logged in full
+	 */
+	public boolean recordFailure(int pktId, Throwable t) {
+		if (pktId < 0 || pktId >= slots.length) {
+			return true;
+		}
+		Slot slot = slots[pktId];
+		synchronized (slot) {
+			long now = now();
+			if (FAILURE_THRESHOLD <= 0 || STATEFUL[pktId] || t instanceof NBTLimitException) {
+				return shouldLog(slot, pktId, now);
+			}
+			if (slot.state == STATE_HALF_OPEN) {
+				slot.state = STATE_OPEN;
+				slot.openUntil = now + OPEN_TIME;
+				logger.warn(String.format("1.8 packet 0x%02X is still failing to translate, dropping it for %dms",
+						pktId, OPEN_TIME));
+				return false;
+			} else if (slot.state == STATE_OPEN) {
+				return false;
+			}
+			if (slot.failures == 0 || now - slot.windowStart >= FAILURE_WINDOW) {
+				slot.windowStart = now;
+				slot.failures = 1;
+			} else {
+				++slot.failures;
+			}
+			if (slot.failures >= FAILURE_THRESHOLD) {
+				slot.state = STATE_OPEN;
+				slot.openUntil = now + OPEN_TIME;
+				logger.warn(String.format(
+						"1.8 packet 0x%02X failed to translate %d times in %dms, dropping it for %dms", pktId,
+						slot.failures, now - slot.windowStart, OPEN_TIME));
+				slot.failures = 0;
+				return false;
+			}
+			return slot.failures == 1;
+		}
+	}
+
+	private boolean shouldLog(Slot slot, int pktId, long now) {
+		if (slot.logged && now - slot.lastLogged < FAILURE_WINDOW) {
+			++slot.suppressed;
+			return false;
+		}
+		if (slot.suppressed > 0l) {
+			logger.warn(String.format("Suppressed %d more failures of 1.8 packet 0x%02X in the last %dms",
+					slot.suppressed, pktId, now - slot.lastLogged));
+			slot.suppressed = 0l;
+		}
+		slot.logged = true;
+		slot.lastLogged = now;
+		return true;
+	}
+
+}
@@ -19,17 +19,21 @@ package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.ScheduledFuture;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.RewindProtocol;
 import net.lax1dude.eaglercraft.backend.server.api.EnumCapabilityType;
 import net.lax1dude.eaglercraft.backend.server.api.rewind.IPacket2ClientProtocol;
 
 public class RewindHandshakeCodec<PlayerObject> extends RewindChannelHandler.Codec<PlayerObject> {
 
+	public static final int HANDSHAKE_TIMEOUT = Integer.getInteger("eaglerxrewind.handshakeTimeout", 10000);
+
 	private static final int CAPABILITIES_MASK = EnumCapabilityType.VOICE.getBit()
 			| EnumCapabilityType.REDIRECT.getBit();
 	private static final int[] CAPABILITIES_VER = new int[] { 1, 1 };
@@ -51,11 +55,64 @@ public class RewindHandshakeCodec<PlayerObject> extends RewindChannelHandler.Cod
 	protected String username;
 	protected byte[] skinData;
 	protected byte[] capeData;
+	protected boolean inFlight;
+	protected ScheduledFuture<?> deadline;
 
 	public RewindHandshakeCodec(IPacket2ClientProtocol firstPacket) {
 		this.username = firstPacket.getUsername();
 	}
 
+	@Override
+	protected void handlerAdded(ChannelHandlerContext ctx) {
+		inFlight = true;
+		rewind().getMetrics().handleHandshakeStarted();
+		if (HANDSHAKE_TIMEOUT > 0) {
+			deadline = ctx.executor().schedule(() -> handleDeadline(ctx), HANDSHAKE_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	protected void handlerRemoved(ChannelHandlerContext ctx) {
+		releaseHandshake();
+	}
+
+	private void handleDeadline(ChannelHandlerContext ctx) {
+		deadline = null;
+		if (state != STATE_COMPLETED) {
+			state = STATE_COMPLETED;
+			releaseHandshake();
+			rewind().getMetrics().handleHandshakeTimeout();
+			kickClient(ctx);
+		}
+	}
+
+	private void releaseHandshake() {
+		if (deadline != null) {
+			deadline.cancel(false);
+			deadline = null;
+		}
+		releaseSkinAndCape();
+		if (inFlight) {
+			inFlight = false;
+			rewind().getMetrics().handleHandshakeEnded();
+		}
+	}
+
+	private void releaseSkinAndCape() {
+		int bytes = 0;
+		if (skinData != null) {
+			bytes += skinData.length;
+			skinData = null;
+		}
+		if (capeData != null) {
+			bytes += capeData.length;
+			capeData = null;
+		}
+		if (bytes > 0) {
+			rewind().getMetrics().addHandshakeBytes(-bytes);
+		}
+	}
+
 	@Override
 	protected void decode(ChannelHandlerContext ctx, ByteBuf buf, List<Object> out) throws Exception {
 		if (state != STATE_COMPLETED) {
@@ -76,6 +133,9 @@ public class RewindHandshakeCodec<PlayerObject> extends RewindChannelHandler.Cod
 				state = STATE_COMPLETED;
 				ctx.close();
 			}
+			if (state == STATE_COMPLETED) {
+				releaseHandshake();
+			}
 		}
 	}
 
@@ -124,8 +184,7 @@ public class RewindHandshakeCodec<PlayerObject> extends RewindChannelHandler.Cod
 				output.add(packet.retain());
 			} finally {
 				packet.release();
-				skinData = null;
-				capeData = null;
+				releaseSkinAndCape();
 			}
 			packet = ctx.alloc().buffer();
 			try {
@@ -179,6 +238,8 @@ public class RewindHandshakeCodec<PlayerObject> extends RewindChannelHandler.Cod
 		skinData = SkinPacketUtils.rewriteLegacyHandshakeSkinToV1(data);
 		if (skinData == null) {
 			skinData = ERR;
+		} else {
+			rewind().getMetrics().addHandshakeBytes(skinData.length);
 		}
 	}
 
@@ -190,6 +251,8 @@ public class RewindHandshakeCodec<PlayerObject> extends RewindChannelHandler.Cod
 		capeData = SkinPacketUtils.rewriteLegacyHandshakeCapeToV1(data);
 		if (capeData == null) {
 			capeData = ERR;
+		} else {
+			rewind().getMetrics().addHandshakeBytes(capeData.length);
 		}
 	}
 
@@ -229,6 +292,9 @@ public class RewindHandshakeCodec<PlayerObject> extends RewindChannelHandler.Cod
 				ctx.close();
 				logger().error("Failed to decode response from backend", ex);
 			}
+			if (state == STATE_COMPLETED) {
+				releaseHandshake();
+			}
 		}
 		if (out.isEmpty()) {
 			out.add(Unpooled.EMPTY_BUFFER); // :(
@@ -236,15 +302,7 @@ public class RewindHandshakeCodec<PlayerObject> extends RewindChannelHandler.Cod
 	}
 
 	private void kickClient(ChannelHandlerContext ctx) {
-		ByteBuf packet = ctx.alloc().buffer();
-		try {
-			// Packet255KickDisconnect
-			packet.writeByte(0xFF);
-			BufferUtils.writeLegacyMCString(packet, "Internal Error", 256);
-			ctx.writeAndFlush(packet.retain()).addListener(ChannelFutureListener.CLOSE);
-		} finally {
-			packet.release();
-		}
+		ctx.writeAndFlush(LegacyConstants.KICK_INTERNAL_ERROR.duplicate()).addListener(ChannelFutureListener.CLOSE);
 	}
 
 	private void handleServerVersion(ChannelHandlerContext ctx, ByteBuf buf) {
@@ -459,6 +517,7 @@ public class RewindHandshakeCodec<PlayerObject> extends RewindChannelHandler.Cod
 	}
 
 	private void enterPlayState() {
+		player().handleHandshakeFinished();
 		handler().setEncoder(new RewindPacketEncoder<>(serverAPI().getHPPC()));
 		handler().setDecoder(new RewindPacketDecoder<>());
 	}
@@ -54,8 +54,7 @@ public class RewindMessageHandler implements GameMessageHandler {
 			ByteBuf buf = alloc().buffer();
 			try {
 				// VOICE_SIGNAL_ALLOWED
-				buf.writeByte(0xFA);
-				BufferUtils.writeLegacyMCString(buf, "EAG|Voice", 255);
+				buf.writeBytes(LegacyConstants.PLUGIN_EAG_VOICE);
 				int lengthAt = buf.writerIndex();
 				buf.writeShort(0);
 				buf.writeByte(0);
@@ -83,8 +82,7 @@ public class RewindMessageHandler implements GameMessageHandler {
 			ByteBuf buf = alloc().buffer();
 			try {
 				// VOICE_SIGNAL_GLOBAL
-				buf.writeByte(0xFA);
-				BufferUtils.writeLegacyMCString(buf, "EAG|Voice", 255);
+				buf.writeBytes(LegacyConstants.PLUGIN_EAG_VOICE);
 				int lengthAt = buf.writerIndex();
 				buf.writeShort(0);
 				buf.writeByte(5);
@@ -109,8 +107,7 @@ public class RewindMessageHandler implements GameMessageHandler {
 				ByteBuf buf = alloc().buffer();
 				try {
 					// VOICE_SIGNAL_CONNECT
-					buf.writeByte(0xFA);
-					BufferUtils.writeLegacyMCString(buf, "EAG|Voice", 255);
+					buf.writeBytes(LegacyConstants.PLUGIN_EAG_VOICE);
 					int lengthAt = buf.writerIndex();
 					buf.writeShort(0);
 					buf.writeByte(1);
@@ -136,8 +133,7 @@ public class RewindMessageHandler implements GameMessageHandler {
 				ByteBuf buf = alloc().buffer();
 				try {
 					// VOICE_SIGNAL_CONNECT
-					buf.writeByte(0xFA);
-					BufferUtils.writeLegacyMCString(buf, "EAG|Voice", 255);
+					buf.writeBytes(LegacyConstants.PLUGIN_EAG_VOICE);
 					int lengthAt = buf.writerIndex();
 					buf.writeShort(0);
 					buf.writeByte(1);
@@ -162,8 +158,7 @@ public class RewindMessageHandler implements GameMessageHandler {
 				ByteBuf buf = alloc().buffer();
 				try {
 					// VOICE_SIGNAL_DESC
-					buf.writeByte(0xFA);
-					BufferUtils.writeLegacyMCString(buf, "EAG|Voice", 255);
+					buf.writeBytes(LegacyConstants.PLUGIN_EAG_VOICE);
 					int lengthAt = buf.writerIndex();
 					buf.writeShort(0);
 					buf.writeByte(4);
@@ -194,8 +189,7 @@ public class RewindMessageHandler implements GameMessageHandler {
 				ByteBuf buf = alloc().buffer();
 				try {
 					// VOICE_SIGNAL_ICE
-					buf.writeByte(0xFA);
-					BufferUtils.writeLegacyMCString(buf, "EAG|Voice", 255);
+					buf.writeBytes(LegacyConstants.PLUGIN_EAG_VOICE);
 					int lengthAt = buf.writerIndex();
 					buf.writeShort(0);
 					buf.writeByte(3);
@@ -226,8 +220,7 @@ public class RewindMessageHandler implements GameMessageHandler {
 				ByteBuf buf = alloc().buffer();
 				try {
 					// VOICE_SIGNAL_DISCONNECT
-					buf.writeByte(0xFA);
-					BufferUtils.writeLegacyMCString(buf, "EAG|Voice", 255);
+					buf.writeBytes(LegacyConstants.PLUGIN_EAG_VOICE);
 					int lengthAt = buf.writerIndex();
 					buf.writeShort(0);
 					buf.writeByte(2);
@@ -265,8 +258,7 @@ public class RewindMessageHandler implements GameMessageHandler {
 		injector.injectOutbound((out) -> {
 			ByteBuf buf = alloc().buffer();
 			try {
-				buf.writeByte(0xFA);
-				BufferUtils.writeLegacyMCString(buf, "EAG|Reconnect", 255);
+				buf.writeBytes(LegacyConstants.PLUGIN_EAG_RECONNECT);
 				byte[] bytes = packet.redirectURI.getBytes(StandardCharsets.UTF_8);
 				buf.writeShort(bytes.length);
 				buf.writeBytes(bytes);
@@ -289,8 +281,7 @@ public class RewindMessageHandler implements GameMessageHandler {
 		injector.injectOutbound((out) -> {
 			ByteBuf buf = alloc().buffer();
 			try {
-				buf.writeByte(0xFA);
-				BufferUtils.writeLegacyMCString(buf, "EAG|UserSkin", 255);
+				buf.writeBytes(LegacyConstants.PLUGIN_EAG_USER_SKIN);
 				int lengthAt = buf.writerIndex();
 				buf.writeShort(0);
 				buf.writeShort(packet.requestId);
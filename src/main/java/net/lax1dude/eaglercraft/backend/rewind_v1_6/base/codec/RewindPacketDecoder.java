@@ -22,6 +22,7 @@ import java.util.UUID;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.RewindPlayer;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.TabListTracker;
 import net.lax1dude.eaglercraft.v1_8.socket.protocol.pkt.client.CPacketGetOtherTexturesV5EAG;
 import net.lax1dude.eaglercraft.v1_8.socket.protocol.pkt.client.CPacketVoiceSignalConnectEAG;
@@ -35,9 +36,35 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 
 	// TODO: rewrite to use individual named methods for each packet
 
+	/**
+	 * Packets that can only be sent by a player who is at the keyboard, movement
+	 * counts as activity only when the position or look actually changes
+	 */
+	private static boolean isActivity(int pktId) {
+		switch (pktId) {
+		case 0x03: // chat
+		case 0x07: // use entity
+		case 0x0E: // dig
+		case 0x0F: // place
+		case 0x10: // held item
+		case 0x12: // animation
+		case 0x13: // entity action
+		case 0x65: // close window
+		case 0x66: // window click
+		case 0x6B: // creative inventory action
+		case 0x82: // update sign
+			return true;
+		default:
+			return false;
+		}
+	}
+
 	@Override
 	protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
 		int pktId = in.readUnsignedByte();
+		if (isActivity(pktId)) {
+			player().handleActivity();
+		}
 		ByteBuf bb = null;
 		System.out.println("reading 1.6 packet, id " + pktId); // 0, 11, 13
 		try {
@@ -116,7 +143,7 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 				}
 				bb = ctx.alloc().buffer();
 				BufferUtils.writeVarInt(bb, 0x04);
-				player().setPos(ppx, ppy, ppz);
+				updatePos(ppx, ppy, ppz);
 				bb.writeDouble(ppx);
 				bb.writeDouble(ppy);
 				bb.writeDouble(ppz);
@@ -130,7 +157,7 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 				ong = in.readBoolean();
 				if (in.isReadable())
 					throw new IndexOutOfBoundsException();
-				player().setLook(plyaw, plpitch);
+				updateLook(plyaw, plpitch);
 				bb.writeFloat(plyaw);
 				bb.writeFloat(plpitch);
 				bb.writeBoolean(ong);
@@ -148,7 +175,7 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 				if (ppy == -999.0D && ppyf == -999.0D) {
 					bb = ctx.alloc().buffer();
 					BufferUtils.writeVarInt(bb, 0x05);
-					player().setLook(plyaw, plpitch);
+					updateLook(plyaw, plpitch);
 					bb.writeFloat(plyaw);
 					bb.writeFloat(plpitch);
 					bb.writeBoolean(ong);
@@ -179,8 +206,8 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 				}
 				bb = ctx.alloc().buffer();
 				BufferUtils.writeVarInt(bb, 0x06);
-				player().setPos(ppx, ppy, ppz);
-				player().setLook(plyaw, plpitch);
+				updatePos(ppx, ppy, ppz);
+				updateLook(plyaw, plpitch);
 				bb.writeDouble(ppx);
 				bb.writeDouble(ppy);
 				bb.writeDouble(ppz);
@@ -189,6 +216,7 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 				bb.writeBoolean(ong);
 				break;
 			case 0x0E:
+				player().invalidateWindowItems();
 				bb = ctx.alloc().buffer();
 				BufferUtils.writeVarInt(bb, 0x07);
 				bb.writeByte(in.readByte());
@@ -198,6 +226,7 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 					throw new IndexOutOfBoundsException();
 				break;
 			case 0x0F:
+				player().invalidateWindowItems();
 				bb = ctx.alloc().buffer();
 				BufferUtils.writeVarInt(bb, 0x08);
 				bb.writeLong(BufferUtils.createPosition(in.readInt(), in.readUnsignedByte(), in.readInt()));
@@ -238,6 +267,7 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 				}
 				break;
 			case 0x65:
+				player().invalidateWindowItems();
 				bb = ctx.alloc().buffer();
 				BufferUtils.writeVarInt(bb, 0x0D);
 				bb.writeByte(in.readByte());
@@ -245,11 +275,12 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 					throw new IndexOutOfBoundsException();
 				break;
 			case 0x66:
+				player().invalidateWindowItems();
 				bb = ctx.alloc().buffer();
 				BufferUtils.writeVarInt(bb, 0x0E);
 				byte windowId = in.readByte();
 				short slot = in.readShort();
-				if (player().getEnchWindows().contains((short) windowId) && slot > 0) {
+				if (player().getEnchWindows().contains(windowId & 0xFF) && slot > 0) {
 					++slot;
 				}
 				bb.writeByte(windowId);
@@ -271,6 +302,7 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 					throw new IndexOutOfBoundsException();
 				break;
 			case 0x6B:
+				player().invalidateWindowItems();
 				bb = ctx.alloc().buffer();
 				BufferUtils.writeVarInt(bb, 0x10);
 				bb.writeShort(in.readShort());
@@ -495,6 +527,29 @@ public class RewindPacketDecoder<PlayerObject> extends RewindChannelHandler.Deco
 				bb.release();
 			}
 		}
+		if (player().checkIdle()) {
+			handler().compact();
+		}
+	}
+
+	/**
+	 * Moving or looking around counts as activity, repeating the position the
+	 * server last set (after a teleport for example) does not
+	 */
+	private void updatePos(double x, double y, double z) {
+		RewindPlayer<PlayerObject> player = player();
+		if (x != player.getX() || y != player.getY() || z != player.getZ()) {
+			player.handleActivity();
+		}
+		player.setPos(x, y, z);
+	}
+
+	private void updateLook(float yaw, float pitch) {
+		RewindPlayer<PlayerObject> player = player();
+		if (yaw != player.getYaw() || pitch != player.getPitch()) {
+			player.handleActivity();
+		}
+		player.setLook(yaw, pitch);
 	}
 
 }
@@ -23,9 +23,8 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.TabListTracker;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.WindowIdSet;
 import net.lax1dude.eaglercraft.backend.server.api.collect.HPPC;
-import net.lax1dude.eaglercraft.backend.server.api.collect.IntIntMap;
-import net.lax1dude.eaglercraft.backend.server.api.collect.IntSet;
 import net.lax1dude.eaglercraft.backend.server.api.collect.ObjectIntMap;
 import net.lax1dude.eaglercraft.backend.server.api.collect.ObjectObjectCursor;
 import net.lax1dude.eaglercraft.backend.server.api.collect.ObjectObjectMap;
@@ -33,14 +32,21 @@ import net.lax1dude.eaglercraft.backend.server.api.collect.ObjectObjectMap;
 public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Encoder<PlayerObject> { // read 1.8, write 1.6
 
 	public static final boolean OLD_CHUNK_FORMAT = Boolean.getBoolean("eaglerxrewind.oldChunkFormat");
+	public static final boolean RELATIVE_TELEPORTS = !Boolean.getBoolean("eaglerxrewind.disableRelativeTeleports");
 
 	private final HPPC hppc;
-	private final ObjectObjectMap<String, ObjectIntMap<String>> scoreBoard;
+	private ObjectObjectMap<String, ObjectIntMap<String>> scoreBoard;
 
 	private byte playerDimension = 0;
-	private final IntSet furnWindows;
+	private final WindowIdSet furnWindows = new WindowIdSet();
 
-	private final IntIntMap entityIdToType;
+	private final EntityTable entities;
+	private int playerEntityId = -1;
+
+	private final EntityInterestTracker interest;
+	private final MovementCoalescer movement;
+	private final EffectsLimiter effects;
+	private final EntityDeltaCache deltas;
 
 	/**
 	 * Objects = no offset
@@ -51,56 +57,39 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 	 * 393 = Lightning Bolt
 	 */
 
-	private static final String[] particleNames = new String[] {
-			"explode",
-			"largeexplode",
-			"hugeexplosion",
-			"fireworksSpark",
-			"bubble",
-			"splash",
-			null, // wake
-			"suspended",
-			"depthsuspend",
-			"crit",
-			"magicCrit",
-			"smoke",
-			"largesmoke",
-			"spell",
-			"instantSpell",
-			"mobSpell",
-			"mobSpellAmbient",
-			"witchMagic",
-			"dripWater",
-			"dripLava",
-			"angryVillager",
-			"happyVillager",
-			"townaura",
-			"note",
-			"portal",
-			"enchantmenttable",
-			"flame",
-			"lava",
-			"footstep",
-			"cloud",
-			"reddust",
-			"snowballpoof",
-			"snowshovel",
-			"slime",
-			"heart",
-			null, // barrier
-			"", // iconcrack_(id)_(data)
-			"", // blockcrack_(id)
-			"", // blockdust_(id)
-			null, // droplet
-			null, // take
-			null // mobappearance
-	};
-
 	public RewindPacketEncoder(HPPC hppc) {
 		this.hppc = hppc;
-		this.scoreBoard = hppc.createObjectObjectHashMap(16);
-		this.furnWindows = hppc.createIntHashSet(4);
-		this.entityIdToType = hppc.createIntIntHashMap(256);
+		this.entities = new EntityTable();
+		this.interest = EntityInterestTracker.RADIUS > 0 ? new EntityInterestTracker(hppc, entities) : null;
+		this.movement = MovementCoalescer.ENABLED ? new MovementCoalescer(hppc, entities) : null;
+		this.deltas = EntityDeltaCache.ENABLED ? new EntityDeltaCache() : null;
+		this.effects = EffectsLimiter.ENABLED ? new EffectsLimiter() : null;
+	}
+
+	private int spawnEntity(int eid, int type) {
+		int i = entities.put(eid, type);
+		if (deltas != null) {
+			int slot = entities.getDeltaSlot(i);
+			if (slot == -1) {
+				entities.setDeltaSlot(i, deltas.allocSlot());
+			} else {
+				deltas.invalidate(slot);
+			}
+		}
+		return i;
+	}
+
+	private void resetEntities() {
+		entities.reset();
+		if (interest != null) {
+			interest.reset();
+		}
+		if (deltas != null) {
+			deltas.reset();
+		}
+		if (playerEntityId != -1) {
+			entities.put(playerEntityId, 300);
+		}
 	}
 
 	private void handleKeepAlive(ByteBuf in, ByteBuf bb) {
@@ -112,7 +101,8 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeByte(0x01);
 		int eid = in.readInt();
 		bb.writeInt(eid);
-		entityIdToType.put(eid, 300);
+		playerEntityId = eid;
+		resetEntities();
 		short gamemode = in.readUnsignedByte();
 		byte dimension = in.readByte();
 		playerDimension = dimension;
@@ -128,13 +118,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 
 	private void handleChatMessage(ByteBuf in, ByteBuf bb) {
 		bb.writeByte(0x03);
-		String msg = BufferUtils.readMCString(in, 32767);
-		try {
-			msg = componentHelper().convertJSONToLegacySection(msg);
-		} catch (IllegalArgumentException ignored) {
-			//
-		}
-		BufferUtils.writeLegacyMCString(bb, msg, 32767);
+		chatCache().convertToLegacy(in, 32767, bb, 32767, componentHelper());
 	}
 
 	private void handleTimeUpdate(ByteBuf in, ByteBuf bb) {
@@ -143,13 +127,30 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeLong(in.readLong());
 	}
 
-	private void handleEntityEquipment(ByteBuf in, ByteBuf bb) {
-		bb.writeByte(0x05);
+	private ByteBuf handleEntityEquipment(ByteBuf in, ByteBufAllocator alloc) {
 		int eid = BufferUtils.readVarInt(in);
 		short slot = in.readShort();
-		bb.writeInt(eid);
-		bb.writeShort(slot);
-		BufferUtils.convertSlot2Legacy(in, bb, player());
+		int i = entities.find(eid);
+		int deltaSlot = (deltas != null && i != -1) ? entities.getDeltaSlot(i) : -1;
+		if (deltaSlot != -1 && !deltas.checkEquipment(deltaSlot, slot, in)) {
+			return null;
+		}
+		ByteBuf bb = alloc.buffer();
+		try {
+			bb.writeByte(0x05);
+			bb.writeInt(eid);
+			bb.writeShort(slot);
+			BufferUtils.convertSlot2Legacy(in, bb, player());
+			bb.retain();
+		} catch (Throwable t) {
+			if (deltaSlot != -1) {
+				deltas.invalidate(deltaSlot);
+			}
+			throw t;
+		} finally {
+			bb.release();
+		}
+		return bb;
 	}
 
 	private void handleSpawnPosition(ByteBuf in, ByteBuf bb) {
@@ -172,6 +173,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 
 	private void handleRespawn(ByteBuf in, ByteBuf bb) {
 		bb.writeByte(0x09);
+		resetEntities();
 		playerDimension = (byte) in.readInt();
 		bb.writeInt(playerDimension);
 		bb.writeByte(in.readUnsignedByte());
@@ -251,17 +253,24 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeByte(0x14);
 		int eid = BufferUtils.readVarInt(in);
 		bb.writeInt(eid);
-		entityIdToType.put(eid, 300);
 		UUID uuid = new UUID(in.readLong(), in.readLong());
 		ByteBuf tmp = alloc.buffer();
 		try {
-			tmp.writeInt(in.readInt());
-			tmp.writeInt(in.readInt());
-			tmp.writeInt(in.readInt());
-			tmp.writeByte(in.readByte());
-			tmp.writeByte(in.readByte());
+			int x = in.readInt();
+			int y = in.readInt();
+			int z = in.readInt();
+			byte yaw = in.readByte();
+			byte pitch = in.readByte();
+			int i = spawnEntity(eid, 300);
+			entities.setPosition(i, x, y, z, yaw, pitch);
+			int deltaSlot = entities.getDeltaSlot(i);
+			tmp.writeInt(x);
+			tmp.writeInt(y);
+			tmp.writeInt(z);
+			tmp.writeByte(yaw);
+			tmp.writeByte(pitch);
 			tmp.writeShort(in.readShort());
-			String playerName = BufferUtils.convertMetadata2Legacy(in, tmp, 300, player());
+			String playerName = MetadataRemapper.convertMetadata2Legacy(in, tmp, 300, player(), deltas, deltaSlot);
 			TabListTracker.ListItem itm = tabList().handleSpawnPlayer(uuid, eid);
 			if (itm != null) {
 				playerName = itm.playerName;
@@ -287,7 +296,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeInt(eid);
 		int otype = in.readByte();
 		bb.writeByte(otype);
-		entityIdToType.put(eid, otype);
+		int i = spawnEntity(eid, otype);
 		int x = in.readInt();
 		int y = in.readInt();
 		int z = in.readInt();
@@ -320,6 +329,9 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		} else if (otype == 50 || otype == 70 || otype == 74) {
 			y += 16;
 		}
+		if (otype != 71) {
+			entities.setPosition(i, x, y, z, yaw, pitch);
+		}
 		bb.writeInt(x);
 		bb.writeInt(y);
 		bb.writeInt(z);
@@ -346,27 +358,32 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 			mtype = 94;
 		}
 		bb.writeByte(mtype);
-		entityIdToType.put(eid, (int) mtype + 100);
-		bb.writeInt(in.readInt());
-		bb.writeInt(in.readInt());
-		bb.writeInt(in.readInt());
+		int i = spawnEntity(eid, (int) mtype + 100);
+		int x = in.readInt();
+		int y = in.readInt();
+		int z = in.readInt();
+		bb.writeInt(x);
+		bb.writeInt(y);
+		bb.writeInt(z);
 		byte myaw = in.readByte();
 		byte mpitch = in.readByte();
 		byte mhpitch = in.readByte();
+		entities.setPosition(i, x, y, z, myaw, mpitch);
+		int deltaSlot = entities.getDeltaSlot(i);
 		bb.writeByte(mpitch);
 		bb.writeByte(mhpitch);
 		bb.writeByte(myaw);
 		bb.writeShort(in.readShort());
 		bb.writeShort(in.readShort());
 		bb.writeShort(in.readShort());
-		BufferUtils.convertMetadata2Legacy(in, bb, mtype + 100, player());
+		MetadataRemapper.convertMetadata2Legacy(in, bb, mtype + 100, player(), deltas, deltaSlot);
 	}
 
 	private void handleSpawnPainting(ByteBuf in, ByteBuf bb) {
 		bb.writeByte(0x19);
 		int eid = BufferUtils.readVarInt(in);
 		bb.writeInt(eid);
-		entityIdToType.put(eid, 391);
+		spawnEntity(eid, 391);
 		BufferUtils.convertMCString2Legacy(in, bb, 255);
 		long paintxyz = in.readLong();
 		int x = BufferUtils.posX(paintxyz);
@@ -396,10 +413,14 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeByte(0x1A);
 		int eid = BufferUtils.readVarInt(in);
 		bb.writeInt(eid);
-		entityIdToType.put(eid, 392);
-		bb.writeInt(in.readInt());
-		bb.writeInt(in.readInt());
-		bb.writeInt(in.readInt());
+		int i = spawnEntity(eid, 392);
+		int x = in.readInt();
+		int y = in.readInt();
+		int z = in.readInt();
+		entities.setPosition(i, x, y, z, 0, 0);
+		bb.writeInt(x);
+		bb.writeInt(y);
+		bb.writeInt(z);
 		bb.writeShort(in.readShort());
 	}
 
@@ -414,11 +435,25 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 	private void handleDestroyEntities(ByteBuf in, ByteBuf bb) {
 		bb.writeByte(0x1D);
 		int c = BufferUtils.readVarInt(in);
+		int countAt = bb.writerIndex();
 		bb.writeByte(c);
+		int cnt = 0;
 		for (int i = 0; i < c; ++i) {
 			int eid = BufferUtils.readVarInt(in);
-			entityIdToType.remove(eid);
-			bb.writeInt(eid);
+			int j = entities.find(eid);
+			if (j != -1) {
+				if (deltas != null && entities.getDeltaSlot(j) != -1) {
+					deltas.freeSlot(entities.getDeltaSlot(j));
+				}
+				entities.removeAt(j);
+			}
+			if (interest == null || interest.handleRemove(eid)) {
+				bb.writeInt(eid);
+				++cnt;
+			}
+		}
+		if (cnt != c) {
+			bb.setByte(countAt, cnt);
 		}
 	}
 
@@ -427,47 +462,237 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeInt(BufferUtils.readVarInt(in));
 	}
 
-	private void handleEntityRelativeMove(ByteBuf in, ByteBuf bb) {
+	private ByteBuf handleEntityRelativeMove(ByteBuf in, ByteBufAllocator alloc) {
+		int eid = BufferUtils.readVarInt(in);
+		byte dx = in.readByte();
+		byte dy = in.readByte();
+		byte dz = in.readByte();
+		int i = entities.findPositioned(eid);
+		if (i != -1) {
+			entities.move(i, dx, dy, dz);
+		}
+		if (interest != null) {
+			int range = interest.handleMove(eid, player().getX(), player().getZ());
+			if (range != EntityInterestTracker.RANGE_VISIBLE) {
+				return handleInterestChange(eid, range, alloc);
+			}
+		}
+		if (movement != null) {
+			movement.handleRelativeMove(eid, dx, dy, dz);
+			return null;
+		}
+		ByteBuf bb = alloc.buffer(8);
 		bb.writeByte(0x1F);
-		bb.writeInt(BufferUtils.readVarInt(in));
-		bb.writeByte(in.readByte());
-		bb.writeByte(in.readByte());
-		bb.writeByte(in.readByte());
+		bb.writeInt(eid);
+		bb.writeByte(dx);
+		bb.writeByte(dy);
+		bb.writeByte(dz);
+		return bb;
 	}
 
-	private void handleEntityLook(ByteBuf in, ByteBuf bb) {
+	private ByteBuf handleEntityLook(ByteBuf in, ByteBufAllocator alloc) {
+		int eid = BufferUtils.readVarInt(in);
+		byte yaw = in.readByte();
+		byte pitch = in.readByte();
+		int i = entities.findPositioned(eid);
+		if (i != -1) {
+			entities.setLook(i, yaw, pitch);
+		}
+		if (interest != null && !interest.isVisible(eid)) {
+			return null;
+		}
+		if (movement != null) {
+			movement.handleLook(eid, yaw, pitch);
+			return null;
+		}
+		ByteBuf bb = alloc.buffer(7);
 		bb.writeByte(0x20);
-		bb.writeInt(BufferUtils.readVarInt(in));
-		bb.writeByte(in.readByte());
-		bb.writeByte(in.readByte());
+		bb.writeInt(eid);
+		bb.writeByte(yaw);
+		bb.writeByte(pitch);
+		return bb;
 	}
 
-	private void handleEntityLookAndRelativeMove(ByteBuf in, ByteBuf bb) {
+	private ByteBuf handleEntityLookAndRelativeMove(ByteBuf in, ByteBufAllocator alloc) {
+		int eid = BufferUtils.readVarInt(in);
+		byte dx = in.readByte();
+		byte dy = in.readByte();
+		byte dz = in.readByte();
+		byte yaw = in.readByte();
+		byte pitch = in.readByte();
+		int i = entities.findPositioned(eid);
+		if (i != -1) {
+			entities.move(i, dx, dy, dz);
+			entities.setLook(i, yaw, pitch);
+		}
+		if (interest != null) {
+			int range = interest.handleMove(eid, player().getX(), player().getZ());
+			if (range != EntityInterestTracker.RANGE_VISIBLE) {
+				return handleInterestChange(eid, range, alloc);
+			}
+		}
+		if (movement != null) {
+			movement.handleRelativeMove(eid, dx, dy, dz);
+			movement.handleLook(eid, yaw, pitch);
+			return null;
+		}
+		ByteBuf bb = alloc.buffer(10);
 		bb.writeByte(0x21);
-		bb.writeInt(BufferUtils.readVarInt(in));
-		bb.writeByte(in.readByte());
-		bb.writeByte(in.readByte());
-		bb.writeByte(in.readByte());
-		bb.writeByte(in.readByte());
-		bb.writeByte(in.readByte());
+		bb.writeInt(eid);
+		bb.writeByte(dx);
+		bb.writeByte(dy);
+		bb.writeByte(dz);
+		bb.writeByte(yaw);
+		bb.writeByte(pitch);
+		return bb;
 	}
 
-	private void handleEntityTeleport(ByteBuf in, ByteBuf bb) {
-		bb.writeByte(0x22);
+	private ByteBuf handleEntityTeleport(ByteBuf in, ByteBufAllocator alloc) {
 		int eid = BufferUtils.readVarInt(in);
-		bb.writeInt(eid);
 		int x = in.readInt();
 		int y = in.readInt();
 		int z = in.readInt();
-		int xd = entityIdToType.getOrDefault(eid, -1);
+		byte yaw = in.readByte();
+		byte pitch = in.readByte();
+		int i = entities.find(eid);
+		int xd = i != -1 ? entities.typeAt(i) : -1;
 		if (xd != -1 && (xd == 50 || xd == 70 || xd == 74)) {
 			y += 16;
 		}
+		if (i != -1 && entities.hasPosition(i)) {
+			int dx = x - entities.getX(i);
+			int dy = y - entities.getY(i);
+			int dz = z - entities.getZ(i);
+			boolean look = yaw != entities.getYaw(i) || pitch != entities.getPitch(i);
+			entities.setPosition(i, x, y, z, yaw, pitch);
+			if (interest != null) {
+				int range = interest.handleMove(eid, player().getX(), player().getZ());
+				if (range != EntityInterestTracker.RANGE_VISIBLE) {
+					return handleInterestChange(eid, range, alloc);
+				}
+			}
+			if (RELATIVE_TELEPORTS && dx >= -128 && dx <= 127 && dy >= -128 && dy <= 127 && dz >= -128
+					&& dz <= 127) {
+				boolean move = dx != 0 || dy != 0 || dz != 0;
+				if (movement != null) {
+					if (move) {
+						movement.handleRelativeMove(eid, dx, dy, dz);
+					}
+					if (look) {
+						movement.handleLook(eid, yaw, pitch);
+					}
+					return null;
+				}
+				ByteBuf bb;
+				if (move) {
+					bb = alloc.buffer(10);
+					bb.writeByte(look ? 0x21 : 0x1F);
+					bb.writeInt(eid);
+					bb.writeByte(dx);
+					bb.writeByte(dy);
+					bb.writeByte(dz);
+				} else if (look) {
+					bb = alloc.buffer(7);
+					bb.writeByte(0x20);
+					bb.writeInt(eid);
+				} else {
+					return null;
+				}
+				if (look) {
+					bb.writeByte(yaw);
+					bb.writeByte(pitch);
+				}
+				return bb;
+			}
+		}
+		if (movement != null) {
+			movement.handleTeleport(eid);
+		}
+		ByteBuf bb = alloc.buffer(19);
+		bb.writeByte(0x22);
+		bb.writeInt(eid);
 		bb.writeInt(x);
 		bb.writeInt(y);
 		bb.writeInt(z);
-		bb.writeByte(in.readByte());
-		bb.writeByte(in.readByte());
+		bb.writeByte(yaw);
+		bb.writeByte(pitch);
+		return bb;
+	}
+
+	private ByteBuf handleInterestChange(int eid, int range, ByteBufAllocator alloc) {
+		ByteBuf bb;
+		switch (range) {
+		case EntityInterestTracker.RANGE_ENTERED:
+			bb = alloc.buffer();
+			try {
+				interest.writeRespawn(eid, bb);
+			} catch (Throwable t) {
+				bb.release();
+				throw t;
+			}
+			return bb;
+		case EntityInterestTracker.RANGE_LEFT:
+			if (movement != null) {
+				movement.handleRemove(eid);
+			}
+			bb = alloc.buffer(6);
+			EntityInterestTracker.writeDespawn(eid, bb);
+			return bb;
+		default:
+			return null;
+		}
+	}
+
+	private boolean isCulledUpdate(int pktId, ByteBuf in) {
+		int eid;
+		switch (pktId) {
+		case 0x0A: // use bed
+		case 0x0B: // animation
+		case 0x12: // velocity
+		case 0x14: // entity
+		case 0x19: // head look
+		case 0x1D: // entity effect
+		case 0x1E: // remove entity effect
+		case 0x20: // entity properties
+			int idx = in.readerIndex();
+			eid = BufferUtils.readVarInt(in);
+			in.readerIndex(idx);
+			break;
+		case 0x1A: // entity status
+			eid = in.getInt(in.readerIndex());
+			break;
+		default:
+			return false;
+		}
+		return !interest.isVisible(eid);
+	}
+
+	private ByteBuf filterInterest(int pktId, ByteBuf bb) {
+		boolean visible;
+		switch (pktId) {
+		case 0x04:
+			visible = interest.handleEquipment(bb);
+			break;
+		case 0x0C:
+		case 0x0E:
+		case 0x0F:
+		case 0x11:
+			visible = interest.handleSpawn(bb, player().getX(), player().getZ());
+			break;
+		case 0x1B:
+			visible = interest.handleAttach(bb);
+			break;
+		case 0x1C:
+			visible = interest.handleMetadata(bb);
+			break;
+		default:
+			return bb;
+		}
+		if (!visible) {
+			bb.release();
+			return null;
+		}
+		return bb;
 	}
 
 	private void handleEntityHeadLook(ByteBuf in, ByteBuf bb) {
@@ -502,11 +727,32 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeInt(in.readInt());
 	}
 
-	private void handleEntityMetadata(ByteBuf in, ByteBuf bb) {
-		bb.writeByte(0x28);
+	private ByteBuf handleEntityMetadata(ByteBuf in, ByteBufAllocator alloc) {
 		int eid = BufferUtils.readVarInt(in);
-		bb.writeInt(eid);
-		BufferUtils.convertMetadata2Legacy(in, bb, entityIdToType.getOrDefault(eid, -1), player());
+		int i = entities.find(eid);
+		int deltaSlot = (deltas != null && i != -1) ? entities.getDeltaSlot(i) : -1;
+		if (deltaSlot != -1 && !deltas.checkRawMetadata(deltaSlot, in)) {
+			return null;
+		}
+		ByteBuf bb = alloc.buffer();
+		try {
+			bb.writeByte(0x28);
+			bb.writeInt(eid);
+			MetadataRemapper.convertMetadata2Legacy(in, bb, i != -1 ? entities.typeAt(i) : -1, player(), deltas,
+					deltaSlot);
+			if (deltaSlot != -1 && bb.readableBytes() == 6) {
+				return null;
+			}
+			bb.retain();
+		} catch (Throwable t) {
+			if (deltaSlot != -1) {
+				deltas.invalidate(deltaSlot);
+			}
+			throw t;
+		} finally {
+			bb.release();
+		}
+		return bb;
 	}
 
 	private void handleEntityEffect(ByteBuf in, ByteBuf bb) {
@@ -628,14 +874,24 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeShort(BufferUtils.convertType2Legacy(BufferUtils.readVarInt(in)));
 	}
 
-	private void handleBlockBreakAnimation(ByteBuf in, ByteBuf bb) {
-		bb.writeByte(0x37);
-		bb.writeInt(BufferUtils.readVarInt(in));
-		long bbaxyz = in.readLong();
-		bb.writeInt(BufferUtils.posX(bbaxyz));
-		bb.writeInt(BufferUtils.posY(bbaxyz));
-		bb.writeInt(BufferUtils.posZ(bbaxyz));
-		bb.writeByte(in.readByte());
+	private ByteBuf handleBlockBreakAnimation(ByteBuf in, ByteBufAllocator alloc) {
+		if (effects != null && !effects.allowEffect()) {
+			return null;
+		}
+		ByteBuf bb = alloc.buffer(18);
+		try {
+			bb.writeByte(0x37);
+			bb.writeInt(BufferUtils.readVarInt(in));
+			long bbaxyz = in.readLong();
+			bb.writeInt(BufferUtils.posX(bbaxyz));
+			bb.writeInt(BufferUtils.posY(bbaxyz));
+			bb.writeInt(BufferUtils.posZ(bbaxyz));
+			bb.writeByte(in.readByte());
+			bb.retain();
+		} finally {
+			bb.release();
+		}
+		return bb;
 	}
 
 	private void handleMapChunkBulk(ByteBuf in, ByteBuf bb, ByteBufAllocator alloc) {
@@ -721,72 +977,78 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeBoolean(in.readBoolean());
 	}
 
-	private void handleSoundEffect(ByteBuf in, ByteBuf bb) {
-		bb.writeByte(0x3E);
-		String sound = BufferUtils.readMCString(in, 255);
-		switch (sound) {
-		case "game.player.hurt.fall.big":
-		case "game.neutral.hurt.fall.big":
-		case "game.hostile.hurt.fall.big":
-			sound = "damage.fallbig";
-			break;
-		case "game.player.hurt.fall.small":
-		case "game.neutral.hurt.fall.small":
-		case "game.hostile.hurt.fall.small":
-			sound = "damage.fallsmall";
-			break;
-		case "game.player.hurt":
-		case "game.player.die":
-		case "game.neutral.hurt":
-		case "game.neutral.die":
-		case "game.hostile.hurt":
-		case "game.hostile.die":
-			sound = "damage.hit";
-			break;
-		case "game.player.swim":
-		case "game.neutral.swim":
-		case "game.hostile.swim":
-			sound = "liquid.swim";
-			break;
-		case "game.player.swim.splash":
-		case "game.neutral.swim.splash":
-		case "game.hostile.swim.splash":
-			sound = "liquid.splash";
-			break;
+	private ByteBuf handleSoundEffect(ByteBuf in, ByteBufAllocator alloc) {
+		int nameAt = in.readerIndex();
+		int nameLen = BufferUtils.readVarInt(in, 5);
+		if (nameLen > 255 * 4) {
+			throw new IndexOutOfBoundsException();
 		}
-		BufferUtils.writeLegacyMCString(bb, sound, 255);
-		bb.writeInt(in.readInt());
-		bb.writeInt(in.readInt());
-		bb.writeInt(in.readInt());
-		bb.writeFloat(in.readFloat());
-		bb.writeByte(in.readUnsignedByte());
+		int nameStart = in.readerIndex();
+		in.skipBytes(nameLen);
+		int x = in.readInt();
+		int y = in.readInt();
+		int z = in.readInt();
+		float volume = in.readFloat();
+		short pitch = in.readUnsignedByte();
+		if (effects != null) {
+			if (!effects.allowSound(x * 0.125, y * 0.125, z * 0.125, player().getX(), player().getY(),
+					player().getZ())) {
+				return null;
+			}
+		}
+		ByteBuf bb = alloc.buffer();
+		try {
+			bb.writeByte(0x3E);
+			byte[] legacyName = TranslationRegistry.get().getSound(in, nameStart, nameLen);
+			if (legacyName != null) {
+				bb.writeBytes(legacyName);
+			} else {
+				int end = in.readerIndex();
+				in.readerIndex(nameAt);
+				BufferUtils.convertMCString2Legacy(in, bb, 255);
+				in.readerIndex(end);
+			}
+			bb.writeInt(x);
+			bb.writeInt(y);
+			bb.writeInt(z);
+			bb.writeFloat(volume);
+			bb.writeByte(pitch);
+			bb.retain();
+		} finally {
+			bb.release();
+		}
+		return bb;
 	}
 
 	private ByteBuf handleParticle(ByteBuf in, ByteBufAllocator alloc) {
 		int pId = in.readInt();
-		String pName = particleNames[pId];
+		byte[] pName = LegacyEffectNames.getParticle(pId);
 		if (pName != null) {
-			ByteBuf bb = alloc.buffer();
+			in.readBoolean();
+			float f1 = in.readFloat();
+			float f2 = in.readFloat();
+			float f3 = in.readFloat();
+			float f4 = in.readFloat();
+			float f5 = in.readFloat();
+			float f6 = in.readFloat();
+			float f7 = in.readFloat();
+			int pInt = in.readInt();
+			if (pId == 36) { // EntityBreakingFX
+				int id = BufferUtils.readVarInt(in);
+				BufferUtils.readVarInt(in);
+				pName = LegacyEffectNames.getIconCrack(BufferUtils.convertItem2Legacy(id));
+			} else if(pId == 37 || pId == 38) { // EntityDiggingFX, EntityBlockDustFX
+				int id = BufferUtils.readVarInt(in);
+				pName = LegacyEffectNames.getTileCrack(BufferUtils.convertType2Legacy(id & 4095), id >> 12 & 15);
+			}
+			if (effects != null) {
+				effects.handleParticle(pName, f1, f2, f3, f4, f5, f6, f7, pInt);
+				return null;
+			}
+			ByteBuf bb = alloc.buffer(pName.length + 33);
 			try {
 				bb.writeByte(0x3F);
-				in.readBoolean();
-				float f1 = in.readFloat();
-				float f2 = in.readFloat();
-				float f3 = in.readFloat();
-				float f4 = in.readFloat();
-				float f5 = in.readFloat();
-				float f6 = in.readFloat();
-				float f7 = in.readFloat();
-				int pInt = in.readInt();
-				if (pId == 36) { // EntityBreakingFX
-					int id = BufferUtils.readVarInt(in);
-					BufferUtils.readVarInt(in);
-					pName = "iconcrack_" + BufferUtils.convertItem2Legacy(id);
-				} else if(pId == 37 || pId == 38) { // EntityDiggingFX, EntityBlockDustFX
-					int id = BufferUtils.readVarInt(in);
-					pName = "tilecrack_" + BufferUtils.convertType2Legacy(id & 4095) + "_" + (id >> 12 & 15);
-				}
-				BufferUtils.writeLegacyMCString(bb, pName, 255);
+				bb.writeBytes(pName);
 				bb.writeFloat(f1);
 				bb.writeFloat(f2);
 				bb.writeFloat(f3);
@@ -839,7 +1101,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeByte(0x47);
 		int eid = BufferUtils.readVarInt(in);
 		bb.writeInt(eid);
-		entityIdToType.put(eid, 393);
+		spawnEntity(eid, 393);
 		bb.writeByte(in.readByte());
 		bb.writeInt(in.readInt());
 		bb.writeInt(in.readInt());
@@ -850,64 +1112,31 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeByte(0x64);
 		short windowUniqueId = in.readUnsignedByte();
 		bb.writeByte(windowUniqueId);
-		String windowType = BufferUtils.readMCString(in, 255);
-		byte windowId = -1;
-		switch (windowType) {
-		case "minecraft:chest":
-		case "minecraft:container":
-		case "EntityHorse":
-			windowId = 0;
-			break;
-		case "minecraft:crafting_table":
-			windowId = 1;
-			break;
-		case "minecraft:furnace":
+		int windowTypeLen = BufferUtils.readVarInt(in, 5);
+		if (windowTypeLen > 255 * 4) {
+			throw new IndexOutOfBoundsException();
+		}
+		int windowId = TranslationRegistry.get().getWindow(in, in.readerIndex(), windowTypeLen);
+		in.skipBytes(windowTypeLen);
+		if (windowId == 2) {
 			furnWindows.add(windowUniqueId);
-			windowId = 2;
-			break;
-		case "minecraft:dispenser":
-			windowId = 3;
-			break;
-		case "minecraft:enchanting_table":
+		} else if (windowId == 4) {
 			player().getEnchWindows().add(windowUniqueId);
-			windowId = 4;
-			break;
-		case "minecraft:brewing_stand":
-			windowId = 5;
-			break;
-		case "minecraft:villager":
-			windowId = 6;
-			break;
-		case "minecraft:beacon":
-			windowId = 7;
-			break;
-		case "minecraft:anvil":
-			windowId = 8;
-			break;
-		case "minecraft:hopper":
-			windowId = 9;
-			break;
-		case "minecraft:dropper":
-			windowId = 10;
-			break;
 		}
 		bb.writeByte(windowId);
-		String windowTitle = BufferUtils.readMCString(in, 4095);
-		try {
-			windowTitle = componentHelper().convertJSONToLegacySection(windowTitle);
-		} catch (IllegalArgumentException ignored) {
-			//
-		}
-		BufferUtils.writeLegacyMCString(bb, windowTitle, 255);
+		player().getWindowItems().handleOpenWindow(windowUniqueId);
+		int titleAt = bb.writerIndex();
+		chatCache().convertToLegacy(in, 4095, bb, 255, componentHelper());
 		bb.writeByte(in.readUnsignedByte());
-		bb.writeBoolean(!windowTitle.isEmpty());
+		bb.writeBoolean(bb.getShort(titleAt) != 0);
 	}
 
 	private void handleCloseWindow(ByteBuf in, ByteBuf bb) {
 		bb.writeByte(0x65);
 		int windowUniqueId = in.readUnsignedByte();
-		player().getEnchWindows().removeAll(windowUniqueId);
-		furnWindows.removeAll(windowUniqueId);
+		player().getEnchWindows().remove(windowUniqueId);
+		furnWindows.remove(windowUniqueId);
+		player().getWindowItems().handleCloseWindow();
 		bb.writeByte(windowUniqueId);
 	}
 
@@ -918,7 +1147,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 			byte windowUniqueId = in.readByte();
 			bb.writeByte(windowUniqueId);
 			short slot = in.readShort();
-			if (player().getEnchWindows().contains((short) windowUniqueId) && slot > 0) {
+			if (player().getEnchWindows().contains(windowUniqueId & 0xFF) && slot > 0) {
 				if (slot == 1) {
 					return null;
 				}
@@ -926,6 +1155,11 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 			} else {
 				bb.writeShort(slot);
 			}
+			if (WindowItemsTracker.ENABLED) {
+				int slotStart = in.readerIndex();
+				long hash = WindowItemsTracker.hashSlot(in, slotStart, BufferUtils.getSlotEnd(in, slotStart, player()));
+				player().getWindowItems().update(windowUniqueId & 0xFF, slot, hash);
+			}
 			BufferUtils.convertSlot2Legacy(in, bb, player());
 			bb.retain();
 		} finally {
@@ -935,11 +1169,47 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 	}
 
 	private void handleWindowItems(ByteBuf in, ByteBuf bb) {
-		bb.writeByte(0x68);
 		short windowUniqueId = in.readUnsignedByte();
-		bb.writeByte(windowUniqueId);
 		short numSlots = in.readShort();
 		boolean ench = player().getEnchWindows().contains(windowUniqueId);
+		WindowItemsTracker tracker = null;
+		long[] hashes = null;
+		if (WindowItemsTracker.ENABLED && numSlots > 0) {
+			tracker = player().getWindowItems();
+			long[] prev = tracker.get(windowUniqueId, numSlots);
+			hashes = tracker.acquire(numSlots);
+			int changed = 0;
+			for (int ii = 0, i = in.readerIndex(); ii < numSlots; ++ii) {
+				if (i >= in.writerIndex()) {
+					prev = null;
+					hashes = null;
+					break;
+				}
+				int end = BufferUtils.getSlotEnd(in, i, player());
+				long hash = WindowItemsTracker.hashSlot(in, i, end);
+				hashes[ii] = hash;
+				if (prev == null || prev[ii] != hash) {
+					++changed;
+				}
+				i = end;
+			}
+			if (prev != null && changed <= (numSlots >> 1)) {
+				for (int ii = 0; ii < numSlots; ++ii) {
+					if (prev[ii] == hashes[ii] || (ench && ii == 1)) {
+						in.readerIndex(BufferUtils.getSlotEnd(in, in.readerIndex(), player()));
+						continue;
+					}
+					bb.writeByte(0x67);
+					bb.writeByte(windowUniqueId);
+					bb.writeShort(ench && ii > 1 ? ii - 1 : ii);
+					BufferUtils.convertSlot2Legacy(in, bb, player());
+				}
+				tracker.put(windowUniqueId, hashes);
+				return;
+			}
+		}
+		bb.writeByte(0x68);
+		bb.writeByte(windowUniqueId);
 		if (ench && numSlots > 1) {
 			bb.writeShort(numSlots - 1);
 		} else {
@@ -958,6 +1228,9 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 				BufferUtils.convertSlot2Legacy(in, bb, player());
 			}
 		}
+		if (hashes != null) {
+			tracker.put(windowUniqueId, hashes);
+		}
 	}
 
 	private ByteBuf handleWindowProperty(ByteBuf in, ByteBufAllocator alloc) {
@@ -999,13 +1272,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		bb.writeShort(BufferUtils.posY(signPos));
 		bb.writeInt(BufferUtils.posZ(signPos));
 		for (int ii = 0; ii < 4; ++ii) {
-			String line = BufferUtils.readMCString(in, 4095);
-			try {
-				line = componentHelper().convertJSONToLegacySection(line);
-			} catch (IllegalArgumentException ignored) {
-				//
-			}
-			BufferUtils.writeLegacyMCString(bb, line, 15);
+			chatCache().convertToLegacy(in, 4095, bb, 15, componentHelper());
 		}
 	}
 
@@ -1109,119 +1376,13 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		ByteBuf bb;
 		int numStats = BufferUtils.readVarInt(in);
 		for (int ii = 0; ii < numStats; ++ii) {
-			String statName = BufferUtils.readMCString(in, 255);
-			int statId = -1;
-			switch (statName) {
-			case "stat.leaveGame":
-				statId = 1004;
-				break;
-			case "stat.playOneMinute":
-				statId = 1100;
-				break;
-			case "stat.walkOneCm":
-				statId = 2000;
-				break;
-			case "stat.swimOneCm":
-				statId = 2001;
-				break;
-			case "stat.fallOneCm":
-				statId = 2002;
-				break;
-			case "stat.climbOneCm":
-				statId = 2003;
-				break;
-			case "stat.flyOneCm":
-				statId = 2004;
-				break;
-			case "stat.diveOneCm":
-				statId = 2005;
-				break;
-			case "stat.minecartOneCm":
-				statId = 2006;
-				break;
-			case "stat.boatOneCm":
-				statId = 2007;
-				break;
-			case "stat.pigOneCm":
-				statId = 2008;
-				break;
-			case "stat.jump":
-				statId = 2010;
-				break;
-			case "stat.drop":
-				statId = 2011;
-				break;
-			case "stat.damageDealt":
-				statId = 2020;
-				break;
-			case "stat.damageTaken":
-				statId = 2021;
-				break;
-			case "stat.deaths":
-				statId = 2022;
-				break;
-			case "stat.mobKills":
-				statId = 2023;
-				break;
-			case "stat.playerKills":
-				statId = 2024;
-				break;
-			case "stat.fishCaught":
-				statId = 2025;
-				break;
-			case "achievement.openInventory":
-				statId = 5242880;
-				break;
-			case "achievement.mineWood":
-				statId = 5242881;
-				break;
-			case "achievement.buildWorkBench":
-				statId = 5242882;
-				break;
-			case "achievement.buildPickaxe":
-				statId = 5242883;
-				break;
-			case "achievement.buildFurnace":
-				statId = 5242884;
-				break;
-			case "achievement.acquireIron":
-				statId = 5242885;
-				break;
-			case "achievement.buildHoe":
-				statId = 5242886;
-				break;
-			case "achievement.makeBread":
-				statId = 5242887;
-				break;
-			case "achievement.bakeCake":
-				statId = 5242888;
-				break;
-			case "achievement.buildBetterPickaxe":
-				statId = 5242889;
-				break;
-			case "achievement.cookFish":
-				statId = 5242890;
-				break;
-			case "achievement.onARail":
-				statId = 5242891;
-				break;
-			case "achievement.buildSword":
-				statId = 5242892;
-				break;
-			case "achievement.killEnemy":
-				statId = 5242893;
-				break;
-			case "achievement.killCow":
-				statId = 5242894;
-				break;
-			case "achievement.flyPig":
-				statId = 5242895;
-				break;
-			default:
-				statName = null;
-				break;
+			int statNameLen = BufferUtils.readVarInt(in, 5);
+			if (statNameLen > 255 * 4) {
+				throw new IndexOutOfBoundsException();
 			}
-			if (statName != null) {
+			int statId = TranslationRegistry.get().getStat(in, in.readerIndex(), statNameLen);
+			in.skipBytes(statNameLen);
+			if (statId != -1) {
 				bb = alloc.buffer();
 				try {
 					bb.writeByte(0xC8);
@@ -1235,10 +1396,10 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		}
 	}
 
-	private void handlePlayerListItem(ByteBuf in, ByteBufAllocator alloc, List<Object> out) {
-		ByteBuf bb;
+	private void handlePlayerListItem(ByteBuf in) {
 		int pliAction = BufferUtils.readVarInt(in);
 		if (pliAction != 1) {
+			TabListTracker tabList = tabList();
 			int pliNum = BufferUtils.readVarInt(in);
 			for (int ii = 0; ii < pliNum; ++ii) {
 				long plimsb = in.readLong();
@@ -1259,108 +1420,44 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 					BufferUtils.readVarInt(in);
 					int tbPing = BufferUtils.readVarInt(in);
 					if (in.readBoolean()) {
-						displayName = BufferUtils.readMCString(in, 32767);
-						try {
-							displayName = componentHelper().convertJSONToLegacySection(displayName);
-						} catch (IllegalArgumentException ignored) {
-							//
-						}
+						displayName = chatCache().readAndConvert(in, 32767, componentHelper());
 					}
-					TabListTracker.ListItem pliItem = tabList().handleAddPlayer(tempName, pliUuid, displayName, tbPing,
+					TabListTracker.ListItem pliItem = tabList.handleAddPlayer(tempName, pliUuid, displayName, tbPing,
 							serverAPI());
 					if (pliItem != null) {
-						bb = alloc.buffer();
-						try {
-							bb.writeByte(0xC9);
-							BufferUtils.writeLegacyMCString(bb, pliItem.oldDisplayName, 16);
-							bb.writeBoolean(false);
-							bb.writeShort(0);
-							out.add(bb.retain());
-						} finally {
-							bb.release();
-						}
-					}
-					bb = alloc.buffer();
-					try {
-						bb.writeByte(0xC9);
-						BufferUtils.writeLegacyMCString(bb, displayName, 16);
-						bb.writeBoolean(true);
-						bb.writeShort(tbPing);
-						out.add(bb.retain());
-					} finally {
-						bb.release();
+						tabList.queueRemove(pliItem.oldDisplayName);
 					}
+					tabList.queueAdd(displayName, tbPing);
 					break;
 				}
 				case 2: {
 					int tbPing = BufferUtils.readVarInt(in);
-					TabListTracker.ListItem pliItem = tabList().handleUpdatePing(pliUuid, tbPing);
+					TabListTracker.ListItem pliItem = tabList.handleUpdatePing(pliUuid, tbPing);
 					if (pliItem != null) {
-						bb = alloc.buffer();
-						try {
-							bb.writeByte(0xC9);
-							BufferUtils.writeLegacyMCString(bb, pliItem.displayName, 16);
-							bb.writeBoolean(true);
-							bb.writeShort(tbPing);
-							out.add(bb.retain());
-						} finally {
-							bb.release();
-						}
+						tabList.queueAdd(pliItem.displayName, tbPing);
 					}
 					break;
 				}
 				case 3: {
 					TabListTracker.ListItem pliItem;
 					if (in.readBoolean()) {
-						String tmp = BufferUtils.readMCString(in, 32767);
-						try {
-							tmp = componentHelper().convertJSONToLegacySection(tmp);
-						} catch (IllegalArgumentException ignored) {
-							//
-						}
-						pliItem = tabList().handleUpdateDisplayName(pliUuid, tmp);
+						String tmp = chatCache().readAndConvert(in, 32767, componentHelper());
+						pliItem = tabList.handleUpdateDisplayName(pliUuid, tmp);
 					} else {
-						pliItem = tabList().handleUpdateDisplayName(pliUuid, null);
+						pliItem = tabList.handleUpdateDisplayName(pliUuid, null);
 					}
 					if (pliItem != null && pliItem.dirty) {
 						pliItem.dirty = false;
-						bb = alloc.buffer();
-						try {
-							bb.writeByte(0xC9);
-							BufferUtils.writeLegacyMCString(bb, pliItem.oldDisplayName, 16);
-							bb.writeBoolean(false);
-							bb.writeShort(0);
-							out.add(bb.retain());
-						} finally {
-							bb.release();
-						}
+						tabList.queueRemove(pliItem.oldDisplayName);
 						pliItem.oldDisplayName = pliItem.displayName;
-						bb = alloc.buffer();
-						try {
-							bb.writeByte(0xC9);
-							BufferUtils.writeLegacyMCString(bb, pliItem.displayName, 16);
-							bb.writeBoolean(true);
-							bb.writeShort(pliItem.pingValue);
-							out.add(bb.retain());
-						} finally {
-							bb.release();
-						}
+						tabList.queueAdd(pliItem.displayName, pliItem.pingValue);
 					}
 					break;
 				}
 				case 4: {
-					TabListTracker.ListItem pliItem = tabList().handleRemovePlayer(pliUuid);
+					TabListTracker.ListItem pliItem = tabList.handleRemovePlayer(pliUuid);
 					if (pliItem != null) {
-						bb = alloc.buffer();
-						try {
-							bb.writeByte(0xC9);
-							BufferUtils.writeLegacyMCString(bb, pliItem.oldDisplayName, 16);
-							bb.writeBoolean(false);
-							bb.writeShort(0);
-							out.add(bb.retain());
-						} finally {
-							bb.release();
-						}
+						tabList.queueRemove(pliItem.oldDisplayName);
 					}
 					break;
 				}
@@ -1399,8 +1496,11 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		BufferUtils.writeLegacyMCString(bb, sboName, 255);
 		byte sboMode = in.readByte();
 		if (sboMode == 0) {
+			if (scoreBoard == null) {
+				scoreBoard = hppc.createObjectObjectHashMap(4);
+			}
 			scoreBoard.put(sboName, hppc.createObjectIntHashMap());
-		} else if (sboMode == 1) {
+		} else if (sboMode == 1 && scoreBoard != null) {
 			scoreBoard.remove(sboName);
 		}
 		if (sboMode == 1) {
@@ -1416,7 +1516,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		String sbItem = BufferUtils.readMCString(in, 255);
 		byte usAction = in.readByte();
 		String sbName = BufferUtils.readMCString(in, 255);
-		ObjectIntMap<String> stfu = scoreBoard.get(sbName);
+		ObjectIntMap<String> stfu = scoreBoard != null ? scoreBoard.get(sbName) : null;
 		if (stfu != null) {
 			if (usAction == 1) {
 				stfu.remove(sbItem);
@@ -1558,13 +1658,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 
 	private void handleDisconnect(ByteBuf in, ByteBuf bb) {
 		bb.writeByte(0xFF);
-		String msg = BufferUtils.readMCString(in, 32767);
-		try {
-			msg = componentHelper().convertJSONToLegacySection(msg);
-		} catch (IllegalArgumentException ignored) {
-			//
-		}
-		BufferUtils.writeLegacyMCString(bb, msg, 32767);
+		chatCache().convertToLegacy(in, 32767, bb, 32767, componentHelper());
 	}
 
     private void handleSteerVehicle(ByteBuf in, ByteBuf bb) {
@@ -1613,17 +1707,29 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 	@Override
 	protected void encode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
 		int pktId = BufferUtils.readVarInt(in);
+		RewindCircuitBreaker breaker = rewind().getCircuitBreaker();
+		if (!breaker.allow(pktId)) {
+			out.add(Unpooled.EMPTY_BUFFER);
+			return;
+		}
+		if (interest != null && isCulledUpdate(pktId, in)) {
+			out.add(Unpooled.EMPTY_BUFFER);
+			return;
+		}
 		ByteBuf bb = null;
 		try {
+			if (movement != null && movement.hasPending() && MovementCoalescer.isBarrier(pktId)) {
+				movement.drain(ctx.alloc(), out);
+			}
 			switch (pktId) {
 			default:
-				System.out.println("Inbound 1.8.x packet " + pktId + " has no outbound 1.6.4 equivalent!"); // packets 71, 69, 65, 68 (0x47, 0x45, 0x41, 0x44) (not in order)
+				// packets 71, 69, 65, 68 (0x47, 0x45, 0x41, 0x44) have no outbound 1.6.4 equivalent
+				break;
             case 0x20:
                 bb = ctx.alloc().buffer();
                 handleEntityProperties(in, bb);
                 break;
             case 0x36:
-				System.out.println("Sign packet, I still havent figured this one out");
                 //handle sign packet, (send 1.6 packet 0x85)
                 break;
 			case 0x00:
@@ -1643,8 +1749,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 				handleTimeUpdate(in, bb);
 				break;
 			case 0x04:
-				bb = ctx.alloc().buffer();
-				handleEntityEquipment(in, bb);
+				bb = handleEntityEquipment(in, ctx.alloc());
 				break;
 			case 0x05:
 				bb = ctx.alloc().buffer();
@@ -1710,24 +1815,24 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 				handleEntity(in, bb);
 				break;
 			case 0x15:
-				bb = ctx.alloc().buffer();
-				handleEntityRelativeMove(in, bb);
+				bb = handleEntityRelativeMove(in, ctx.alloc());
 				break;
 			case 0x16:
-				bb = ctx.alloc().buffer();
-				handleEntityLook(in, bb);
+				bb = handleEntityLook(in, ctx.alloc());
 				break;
 			case 0x17:
-				bb = ctx.alloc().buffer();
-				handleEntityLookAndRelativeMove(in, bb);
+				bb = handleEntityLookAndRelativeMove(in, ctx.alloc());
 				break;
 			case 0x18:
-				bb = ctx.alloc().buffer();
-				handleEntityTeleport(in, bb);
+				bb = handleEntityTeleport(in, ctx.alloc());
 				break;
 			case 0x19:
-				bb = ctx.alloc().buffer();
-				handleEntityHeadLook(in, bb);
+				if (movement != null) {
+					movement.handleHeadLook(BufferUtils.readVarInt(in), in.readByte());
+				} else {
+					bb = ctx.alloc().buffer();
+					handleEntityHeadLook(in, bb);
+				}
 				break;
 			case 0x1A:
 				bb = handleEntityStatus(in, ctx.alloc());
@@ -1737,8 +1842,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 				handleAttachEntity(in, bb);
 				break;
 			case 0x1C:
-				bb = ctx.alloc().buffer();
-				handleEntityMetadata(in, bb);
+				bb = handleEntityMetadata(in, ctx.alloc());
 				break;
 			case 0x1D:
 				bb = ctx.alloc().buffer();
@@ -1769,8 +1873,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 				handleBlockAction(in, bb);
 				break;
 			case 0x25:
-				bb = ctx.alloc().buffer();
-				handleBlockBreakAnimation(in, bb);
+				bb = handleBlockBreakAnimation(in, ctx.alloc());
 				break;
 			case 0x26:
 				bb = ctx.alloc().buffer(65536);
@@ -1785,8 +1888,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 				handleEffect(in, bb);
 				break;
 			case 0x29:
-				bb = ctx.alloc().buffer();
-				handleSoundEffect(in, bb);
+				bb = handleSoundEffect(in, ctx.alloc());
 				break;
 			case 0x2A:
 				bb = handleParticle(in, ctx.alloc());
@@ -1834,7 +1936,7 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 				handleStatistics(in, ctx.alloc(), out);
 				break;
 			case 0x38:
-				handlePlayerListItem(in, ctx.alloc(), out);
+				handlePlayerListItem(in);
 				break;
 			case 0x39:
 				bb = ctx.alloc().buffer();
@@ -1867,12 +1969,17 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 				handleDisconnect(in, bb);
 				break;
 			}
+			if (bb != null && interest != null) {
+				bb = filterInterest(pktId, bb);
+			}
 			if (bb != null) {
 				out.add(bb);
 			}
+			breaker.recordSuccess(pktId);
 		} catch (Exception e) {
-			System.out.println("error with fucking packet " + pktId);
-			logger().error("Could not encode rewind packet", e);
+			if (breaker.recordFailure(pktId, e)) {
+				logger().error("Could not encode rewind packet " + pktId, e);
+			}
 			if (bb != null) {
 				bb.release();
 			}
@@ -1882,4 +1989,36 @@ public class RewindPacketEncoder<PlayerObject> extends RewindChannelHandler.Enco
 		}
 	}
 
+	@Override
+	protected void compact() {
+		if (movement != null) {
+			movement.compact();
+		}
+		if (effects != null) {
+			effects.compact();
+		}
+		if (deltas != null) {
+			// Only suppresses duplicates, entities spawned later get a slot again
+			entities.clearDeltaSlots();
+			deltas.reset();
+		}
+	}
+
+	@Override
+	protected void flush(ChannelHandlerContext ctx, List<Object> out) {
+		if (movement != null) {
+			movement.drain(ctx.alloc(), out);
+		}
+		if (interest != null) {
+			interest.sweep(player().getX(), player().getZ(), ctx.alloc(), out);
+		}
+		if (effects != null) {
+			effects.drain(ctx.alloc(), out);
+		}
+		TabListTracker tabList = player().getTabListIfCreated();
+		if (tabList != null) {
+			tabList.drain(ctx.alloc(), out);
+		}
+	}
+
 }
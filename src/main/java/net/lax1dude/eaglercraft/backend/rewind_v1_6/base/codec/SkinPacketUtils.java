@@ -16,7 +16,6 @@
 
 package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
 
-import net.lax1dude.eaglercraft.backend.server.api.skins.EnumPresetSkins;
 import io.netty.buffer.ByteBuf;
 
 public class SkinPacketUtils {
@@ -49,46 +48,7 @@ public class SkinPacketUtils {
 		}
 	}
 
-	private static final int[] map15to18PresetSkin = new int[] {
-			EnumPresetSkins.DEFAULT_STEVE.getId(), //skins/01.default_steve.png
-			EnumPresetSkins.DEFAULT_ALEX.getId(), //skins/02.default_alex.png
-			EnumPresetSkins.TENNIS_STEVE.getId(), //skins/03.tennis_steve.png
-			EnumPresetSkins.TENNIS_ALEX.getId(), //skins/04.tennis_alex.png
-			EnumPresetSkins.TUXEDO_STEVE.getId(), //skins/05.tuxedo_steve.png
-			EnumPresetSkins.TUXEDO_ALEX.getId(), //skins/06.tuxedo_alex.png
-			EnumPresetSkins.ATHLETE_STEVE.getId(), //skins/07.athlete_steve.png
-			EnumPresetSkins.ATHLETE_ALEX.getId(), //skins/08.athlete_alex.png
-			EnumPresetSkins.CYCLIST_STEVE.getId(), //skins/09.cyclist_steve.png
-			EnumPresetSkins.CYCLIST_ALEX.getId(), //skins/10.cyclist_alex.png
-			EnumPresetSkins.BOXER_STEVE.getId(), //skins/11.boxer_steve.png
-			EnumPresetSkins.BOXER_ALEX.getId(), //skins/12.boxer_alex.png
-			EnumPresetSkins.PRISONER_STEVE.getId(), //skins/13.prisoner_steve.png
-			EnumPresetSkins.PRISONER_ALEX.getId(), //skins/14.prisoner_alex.png
-			EnumPresetSkins.SCOTTISH_STEVE.getId(), //skins/15.scottish_steve.png
-			EnumPresetSkins.SCOTTISH_ALEX.getId(), //skins/16.scottish_alex.png
-			EnumPresetSkins.DEVELOPER_STEVE.getId(), //skins/17.dev_steve.png
-			EnumPresetSkins.DEVELOPER_ALEX.getId(), //skins/18.dev_alex.png
-			EnumPresetSkins.HEROBRINE.getId(), //skins/19.herobrine.png
-			EnumPresetSkins.DEFAULT_STEVE.getId(), //mob/enderman.png
-			EnumPresetSkins.DEFAULT_STEVE.getId(), //mob/skeleton.png
-			EnumPresetSkins.DEFAULT_STEVE.getId(), //mob/fire.png
-			EnumPresetSkins.DEFAULT_STEVE.getId(), //skins/20.barney.png
-			EnumPresetSkins.DEFAULT_STEVE.getId(), //skins/21.slime.png
-			EnumPresetSkins.DEFAULT_STEVE.getId(), //skins/22.noob.png
-			EnumPresetSkins.DEFAULT_STEVE.getId(), //skins/23.trump.png
-			EnumPresetSkins.NOTCH.getId(), //skins/24.notch.png
-			EnumPresetSkins.CREEPER.getId(), //skins/25.creeper.png
-			EnumPresetSkins.ZOMBIE.getId(), //skins/26.zombie.png
-			EnumPresetSkins.PIG.getId(), //skins/27.pig.png
-			EnumPresetSkins.DEFAULT_STEVE.getId(), //skins/28.squid.png
-			EnumPresetSkins.MOOSHROOM.getId(), //skins/29.mooshroom.png
-			EnumPresetSkins.DEFAULT_STEVE.getId(), //mob/villager/villager.png
-			EnumPresetSkins.LONG_ARMS.getId(), //LONG_ARMS
-			EnumPresetSkins.WEIRD_CLIMBER_DUDE.getId(), //WEIRD_CLIMBER_DUDE
-			EnumPresetSkins.LAXATIVE_DUDE.getId(), //LAXATIVE_DUDE
-			EnumPresetSkins.BABY_CHARLES.getId(), //BABY_CHARLES
-			EnumPresetSkins.BABY_WINSTON.getId() //BABY_WINSTON
-	};
+	private static final int[] map15to18PresetSkin = TranslationRegistry.get().getPresetSkins();
 
 	private static final int[] map18to15PresetSkin = invertMap(map15to18PresetSkin);
 
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.IRewindLogger;
+import net.lax1dude.eaglercraft.backend.server.api.skins.EnumPresetSkins;
+
+/**
+ * Item, block, map color, sound, statistic, window and preset skin mappings,
+ * loaded from rewind_translations.txt and an optional override file set with
+ * eaglerxrewind.translations. Numeric keys are compiled into dense arrays and
+ * string keys into perfect hash tables over the raw UTF-8 bytes, so packet
+ * handlers can look them up without decoding a String.
+ */
+public class TranslationRegistry {
+
+	public static final String OVERRIDE_FILE = System.getProperty("eaglerxrewind.translations");
+
+	private static final String RESOURCE = "/rewind_translations.txt";
+
+	private static volatile TranslationRegistry instance;
+
+	/**
+	 * Called once on startup so problems with the override file are logged, the
+	 * tables are otherwise loaded on first use
+	 */
+	public static void init(IRewindLogger logger) {
+		instance = load(logger);
+	}
+
+	public static TranslationRegistry get() {
+		TranslationRegistry ret = instance;
+		if (ret == null) {
+			synchronized (TranslationRegistry.class) {
+				ret = instance;
+				if (ret == null) {
+					instance = ret = load(null);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * String keys hashed with a seed that gives every key its own slot
+	 */
+	private static class StringTable {
+
+		private final int seed;
+		private final int mask;
+		private final byte[][] keys;
+		private final int[] values;
+
+		private StringTable(Map<String, Integer> map) {
+			int size = 8;
+			while (size < map.size() * 2) {
+				size <<= 1;
+			}
+			byte[][] keyBytes = new byte[map.size()][];
+			int[] keyValues = new int[keyBytes.length];
+			int i = 0;
+			for (Map.Entry<String, Integer> etr : map.entrySet()) {
+				keyBytes[i] = etr.getKey().getBytes(StandardCharsets.UTF_8);
+				keyValues[i++] = etr.getValue();
+			}
+			for (;;) {
+				for (int s = 1; s <= 4096; ++s) {
+					byte[][] slots = new byte[size][];
+					int[] slotValues = new int[size];
+					boolean ok = true;
+					for (int j = 0; j < keyBytes.length; ++j) {
+						int k = hash(s, keyBytes[j]) & (size - 1);
+						if (slots[k] != null) {
+							ok = false;
+							break;
+						}
+						slots[k] = keyBytes[j];
+						slotValues[k] = keyValues[j];
+					}
+					if (ok) {
+						this.seed = s;
+						this.mask = size - 1;
+						this.keys = slots;
+						this.values = slotValues;
+						return;
+					}
+				}
+				size <<= 1;
+			}
+		}
+
+		private static int hash(int seed, byte[] key) {
+			int h = seed;
+			for (int i = 0; i < key.length; ++i) {
+				h = (h ^ (key[i] & 0xFF)) * 0x01000193;
+			}
+			return h ^ (h >>> 16);
+		}
+
+		private int get(ByteBuf buf, int start, int len, int def) {
+			int h = seed;
+			for (int i = 0; i < len; ++i) {
+				h = (h ^ (buf.getByte(start + i) & 0xFF)) * 0x01000193;
+			}
+			int k = (h ^ (h >>> 16)) & mask;
+			byte[] key = keys[k];
+			if (key == null || key.length != len) {
+				return def;
+			}
+			for (int i = 0; i < len; ++i) {
+				if (key[i] != buf.getByte(start + i)) {
+					return def;
+				}
+			}
+			return values[k];
+		}
+
+	}
+
+	private final int[] items;
+	private final int[] types;
+	private final byte[] mapColors;
+	private final StringTable sounds;
+	private final byte[][] soundNames;
+	private final StringTable stats;
+	private final StringTable windows;
+	private final int[] presetSkins;
+
+	private TranslationRegistry(Map<String, Map<String, String>> sections) {
+		Map<Integer, Integer> typeMap = parseIntMap(sections, "type");
+		Map<Integer, Integer> itemMap = parseIntMap(sections, "item");
+		types = createArray(typeMap, 0);
+		int itemLen = Math.max(types.length, maxKey(itemMap) + 1);
+		items = new int[itemLen];
+		for (int i = 0; i < itemLen; ++i) {
+			int type = i < types.length ? types[i] : i;
+			Integer item = itemMap.get(type);
+			items[i] = item != null ? item : type;
+		}
+		int[] colors = createArray(parseIntMap(sections, "mapcolor"), 64);
+		mapColors = new byte[64];
+		for (int i = 0; i < 64; ++i) {
+			mapColors[i] = (byte) (colors[i] & 63);
+		}
+		Map<String, String> soundMap = getSection(sections, "sound");
+		Map<String, Integer> soundIndices = new LinkedHashMap<>();
+		Map<String, Integer> soundValueIndices = new HashMap<>();
+		List<byte[]> soundValues = new ArrayList<>();
+		for (Map.Entry<String, String> etr : soundMap.entrySet()) {
+			Integer idx = soundValueIndices.get(etr.getValue());
+			if (idx == null) {
+				idx = soundValues.size();
+				soundValues.add(BufferUtils.encodeLegacyMCString(etr.getValue(), 255));
+				soundValueIndices.put(etr.getValue(), idx);
+			}
+			soundIndices.put(etr.getKey(), idx);
+		}
+		sounds = new StringTable(soundIndices);
+		soundNames = soundValues.toArray(new byte[soundValues.size()][]);
+		stats = new StringTable(parseStringIntMap(sections, "stat"));
+		windows = new StringTable(parseStringIntMap(sections, "window"));
+		Map<Integer, Integer> skinMap = new HashMap<>();
+		for (Map.Entry<String, String> etr : getSection(sections, "skin").entrySet()) {
+			skinMap.put(parseInt("skin", etr.getKey()), EnumPresetSkins.valueOf(etr.getValue()).getId());
+		}
+		presetSkins = new int[maxKey(skinMap) + 1];
+		for (Map.Entry<Integer, Integer> etr : skinMap.entrySet()) {
+			presetSkins[etr.getKey()] = etr.getValue();
+		}
+	}
+
+	/**
+	 * Returns the 1.6 id for a 1.8 block id, unmapped ids are returned unchanged
+	 */
+	public int getType(int type) {
+		return type >= 0 && type < types.length ? types[type] : type;
+	}
+
+	/**
+	 * Returns the 1.6 id for a 1.8 item id, unmapped ids are returned unchanged
+	 */
+	public int getItem(int item) {
+		return item >= 0 && item < items.length ? items[item] : item;
+	}
+
+	public int getMapColor(int color) {
+		return mapColors[color & 63];
+	}
+
+	/**
+	 * Returns the pre-encoded legacy name for a renamed sound, or null if the UTF-8
+	 * name at start should be sent as is
+	 */
+	public byte[] getSound(ByteBuf buf, int start, int len) {
+		int i = sounds.get(buf, start, len, -1);
+		return i != -1 ? soundNames[i] : null;
+	}
+
+	/**
+	 * Returns -1 for statistics the 1.6 client doesn't have
+	 */
+	public int getStat(ByteBuf buf, int start, int len) {
+		return stats.get(buf, start, len, -1);
+	}
+
+	/**
+	 * Returns -1 for unknown window types
+	 */
+	public int getWindow(ByteBuf buf, int start, int len) {
+		return windows.get(buf, start, len, -1);
+	}
+
+	/**
+	 * Indexed by 1.6 preset skin id, values are EnumPresetSkins ids
+	 */
+	public int[] getPresetSkins() {
+		return presetSkins;
+	}
+
+	private static TranslationRegistry load(IRewindLogger logger) {
+		if (OVERRIDE_FILE != null) {
+			File f = new File(OVERRIDE_FILE);
+			try {
+				Map<String, Map<String, String>> sections = loadDefaults();
+				try (InputStream is = new FileInputStream(f)) {
+					parse(is, sections);
+				}
+				TranslationRegistry ret = new TranslationRegistry(sections);
+				if (logger != null) {
+					logger.info("Loaded translation overrides from " + f.getAbsolutePath());
+				}
+				return ret;
+			} catch (IOException | IllegalArgumentException ex) {
+				if (logger != null) {
+					logger.error("Could not load translation overrides from " + f.getAbsolutePath()
+							+ ", using the defaults", ex);
+				}
+			}
+		}
+		return new TranslationRegistry(loadDefaults());
+	}
+
+	private static Map<String, Map<String, String>> loadDefaults() {
+		Map<String, Map<String, String>> sections = new HashMap<>();
+		try (InputStream is = TranslationRegistry.class.getResourceAsStream(RESOURCE)) {
+			if (is == null) {
+				throw new IOException("Resource not found");
+			}
+			parse(is, sections);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Could not load " + RESOURCE, ex);
+		}
+		return sections;
+	}
+
+	private static void parse(InputStream is, Map<String, Map<String, String>> sections) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+		Map<String, String> section = null;
+		String line;
+		int lineNum = 0;
+		while ((line = reader.readLine()) != null) {
+			++lineNum;
+			line = line.trim();
+			if (line.isEmpty() || line.charAt(0) == '#') {
+				continue;
+			}
+			if (line.charAt(0) == '[' && line.charAt(line.length() - 1) == ']') {
+				section = sections.computeIfAbsent(line.substring(1, line.length() - 1).trim(),
+						(k) -> new LinkedHashMap<>());
+				continue;
+			}
+			int i = line.indexOf(' ');
+			if (section == null || i == -1) {
+				throw new IllegalArgumentException("Invalid translation on line " + lineNum + ": " + line);
+			}
+			section.put(line.substring(0, i), line.substring(i + 1).trim());
+		}
+	}
+
+	private static Map<String, String> getSection(Map<String, Map<String, String>> sections, String name) {
+		Map<String, String> ret = sections.get(name);
+		return ret != null ? ret : new HashMap<>();
+	}
+
+	private static Map<Integer, Integer> parseIntMap(Map<String, Map<String, String>> sections, String name) {
+		Map<Integer, Integer> ret = new HashMap<>();
+		for (Map.Entry<String, String> etr : getSection(sections, name).entrySet()) {
+			ret.put(parseInt(name, etr.getKey()), parseInt(name, etr.getValue()));
+		}
+		return ret;
+	}
+
+	private static Map<String, Integer> parseStringIntMap(Map<String, Map<String, String>> sections, String name) {
+		Map<String, Integer> ret = new LinkedHashMap<>();
+		for (Map.Entry<String, String> etr : getSection(sections, name).entrySet()) {
+			ret.put(etr.getKey(), parseInt(name, etr.getValue()));
+		}
+		return ret;
+	}
+
+	private static int parseInt(String section, String str) {
+		try {
+			int ret = Integer.parseInt(str);
+			if (ret < 0) {
+				throw new NumberFormatException();
+			}
+			return ret;
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Invalid number in [" + section + "]: " + str);
+		}
+	}
+
+	private static int maxKey(Map<Integer, Integer> map) {
+		int max = -1;
+		for (Integer i : map.keySet()) {
+			if (i > max) {
+				max = i;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Identity mapped array covering every key, and at least minLen long
+	 */
+	private static int[] createArray(Map<Integer, Integer> map, int minLen) {
+		int[] ret = new int[Math.max(maxKey(map) + 1, minLen)];
+		for (int i = 0; i < ret.length; ++i) {
+			Integer j = map.get(i);
+			ret[i] = j != null ? j : i;
+		}
+		return ret;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Remembers a fingerprint of every slot last sent in the player inventory and
+ * in the open container, so a repeated window items packet can be sent as set
+ * slot packets for the slots that actually changed. The fingerprints are taken
+ * from the 1.8 slot bytes, unchanged slots never have their NBT converted.
+ */
+public class WindowItemsTracker {
+
+	public static final boolean ENABLED = !Boolean.getBoolean("eaglerxrewind.disableWindowDelta");
+
+	private long[] inventory;
+	private int containerId = -1;
+	private long[] container;
+	private long[] spare;
+
+	/**
+	 * Returns the fingerprints last sent for the window, or null if unknown
+	 */
+	public long[] get(int windowId, int numSlots) {
+		long[] ret = windowId == 0 ? inventory : (windowId == containerId ? container : null);
+		return ret != null && ret.length == numSlots ? ret : null;
+	}
+
+	/**
+	 * Returns an array to fill with new fingerprints and pass to put
+	 */
+	public long[] acquire(int numSlots) {
+		long[] ret = spare;
+		if (ret != null && ret.length == numSlots) {
+			spare = null;
+			return ret;
+		}
+		return new long[numSlots];
+	}
+
+	public void put(int windowId, long[] slots) {
+		long[] old;
+		if (windowId == 0) {
+			old = inventory;
+			inventory = slots;
+		} else {
+			old = containerId == windowId ? container : null;
+			containerId = windowId;
+			container = slots;
+		}
+		if (old != null) {
+			spare = old;
+		}
+	}
+
+	public void update(int windowId, int slot, long hash) {
+		long[] slots = windowId == 0 ? inventory : (windowId == containerId ? container : null);
+		if (slots != null && slot >= 0 && slot < slots.length) {
+			slots[slot] = hash;
+		}
+	}
+
+	public void handleOpenWindow(int windowId) {
+		containerId = windowId;
+		container = null;
+	}
+
+	public void handleCloseWindow() {
+		containerId = -1;
+		container = null;
+	}
+
+	/**
+	 * Called when the client may have changed its own copy of the inventory, the
+	 * next window items packet for any window is then sent in full
+	 */
+	public void invalidate() {
+		inventory = null;
+		container = null;
+	}
+
+	public static long hashSlot(ByteBuf buf, int start, int end) {
+		return ChatComponentCache.hash(buf, start, end - start);
+	}
+
+}
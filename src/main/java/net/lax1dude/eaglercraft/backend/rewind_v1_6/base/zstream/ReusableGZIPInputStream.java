@@ -23,6 +23,7 @@ import java.util.zip.ZipException;
 
 import io.netty.buffer.ByteBuf;
 import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.BufferUtils;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.NBTLimitException;
 
 /**
  * Note: Based on OpenJDK
@@ -57,6 +58,7 @@ public class ReusableGZIPInputStream extends ReusableInflaterInputStream {
 			readHeader(dataIn);
 		}
 		start = dataIn.readerIndex();
+		remaining = limit >= 0 ? limit : -1;
 		super.setInput(dataIn);
 	}
 
@@ -76,7 +78,7 @@ public class ReusableGZIPInputStream extends ReusableInflaterInputStream {
 		} else {
 			if (remaining >= 0) {
 				if (n > remaining) {
-					throw new IOException("Too many bytes decompressed!");
+					throw new NBTLimitException("Too many bytes decompressed!");
 				} else {
 					remaining -= n;
 				}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.openjdk.jol.info.GraphLayout;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.BufferUtils;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.RewindChannelHandler;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.RewindPacketDecoder;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec.RewindPacketEncoder;
+import net.lax1dude.eaglercraft.backend.server.api.IEaglerXServerAPI;
+import net.lax1dude.eaglercraft.backend.server.api.collect.HPPC;
+
+/**
+ * Measures the heap retained by one legacy session with JOL and prints it per
+ * component, fails if a session grows past its budget. Shared state (the
+ * protocol, its caches and the channel) is not counted.
+ */
+public class SessionFootprintTest {
+
+	/**
+	 * Fresh session after the handshake, before any play packets
+	 */
+	public static final long SESSION_BUDGET = 6144l;
+
+	/**
+	 * Session that saw 64 mobs, 64 tab list entries and an inventory, after
+	 * compaction
+	 */
+	public static final long IDLE_SESSION_BUDGET = 24576l;
+
+	/**
+	 * Implements the API's collections with the HPPC classes of the same name,
+	 * which is what the server does too
+	 */
+	private static class HPPCHandler implements InvocationHandler {
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (!name.startsWith("create")) {
+				return defaultValue(proxy, method, args);
+			}
+			Class<?> impl = Class.forName("com.carrotsearch.hppc." + name.substring(6));
+			Object map;
+			if (args != null && args.length == 1) {
+				Constructor<?> ctor = impl.getConstructor(int.class);
+				map = ctor.newInstance(args[0]);
+			} else {
+				map = impl.getConstructor().newInstance();
+			}
+			return Proxy.newProxyInstance(SessionFootprintTest.class.getClassLoader(),
+					new Class<?>[] { method.getReturnType() }, new Delegate(map));
+		}
+
+	}
+
+	private static class Delegate implements InvocationHandler {
+
+		private final Object target;
+
+		private Delegate(Object target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			int argc = args != null ? args.length : 0;
+			for (Method m : target.getClass().getMethods()) {
+				if (m.getName().equals(method.getName()) && m.getParameterCount() == argc) {
+					return m.invoke(target, args);
+				}
+			}
+			return defaultValue(proxy, method, args);
+		}
+
+	}
+
+	private static class APIHandler implements InvocationHandler {
+
+		private final HPPC hppc = (HPPC) Proxy.newProxyInstance(SessionFootprintTest.class.getClassLoader(),
+				new Class<?>[] { HPPC.class }, new HPPCHandler());
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "getHPPC":
+				return hppc;
+			case "intern":
+				return args[0];
+			default:
+				return defaultValue(proxy, method, args);
+			}
+		}
+
+	}
+
+	private static Object defaultValue(Object proxy, Method method, Object[] args) {
+		Class<?> ret = method.getReturnType();
+		switch (method.getName()) {
+		case "hashCode":
+			return System.identityHashCode(proxy);
+		case "equals":
+			return proxy == args[0];
+		case "toString":
+			return ret == String.class ? "proxy" : null;
+		}
+		if (ret == boolean.class) {
+			return false;
+		} else if (ret == void.class) {
+			return null;
+		} else if (ret.isPrimitive()) {
+			return ret == long.class ? (Object) 0l : ret == float.class ? (Object) 0.0f
+					: ret == double.class ? (Object) 0.0 : (Object) 0;
+		} else if (ret.isInterface()) {
+			return Proxy.newProxyInstance(SessionFootprintTest.class.getClassLoader(), new Class<?>[] { ret },
+					SessionFootprintTest::defaultValue);
+		}
+		return null;
+	}
+
+	private static class Session {
+
+		private final RewindProtocol<Object> protocol;
+		private final EmbeddedChannel channel;
+		private final EmbeddedChannel wire;
+		private final RewindPlayer<Object> player;
+		private final RewindChannelHandler<Object> handler;
+
+		@SuppressWarnings("unchecked")
+		private Session() {
+			TestLogger logger = new TestLogger(null, "EaglerXRewind");
+			protocol = new RewindProtocol<>(() -> logger);
+			IEaglerXServerAPI<Object> api = (IEaglerXServerAPI<Object>) Proxy.newProxyInstance(
+					SessionFootprintTest.class.getClassLoader(), new Class<?>[] { IEaglerXServerAPI.class },
+					new APIHandler());
+			protocol.handleRegistered(api);
+			channel = new EmbeddedChannel();
+			player = new RewindPlayer<>(protocol, null, null, channel, "/127.0.0.1:25565|TestPlayer");
+			handler = new RewindChannelHandler<>(player).setEncoder(new RewindPacketEncoder<>(api.getHPPC()))
+					.setDecoder(new RewindPacketDecoder<>());
+			wire = new EmbeddedChannel(handler);
+		}
+
+		private void write(ByteBuf pkt) {
+			wire.writeOutbound(pkt);
+			Object o;
+			while ((o = wire.readOutbound()) != null) {
+				ReferenceCountUtil.release(o);
+			}
+		}
+
+		private long measure() {
+			return sessionLayout(handler).totalSize();
+		}
+
+		/**
+		 * Everything reachable from the handler minus what other sessions share,
+		 * Netty's type matcher points to the ByteBuf class
+		 */
+		private GraphLayout sessionLayout(Object root) {
+			return GraphLayout.parseInstance(root)
+					.subtract(GraphLayout.parseInstance(protocol, channel, ByteBuf.class));
+		}
+
+		private void report(String title, TestReporter reporter) {
+			reporter.publishEntry(title, measure() + " bytes");
+			reportFields(title, "handler", handler, reporter);
+			reportFields(title, "player", player, reporter);
+			reportFields(title, "encoder", field(handler, "encoder"), reporter);
+			reportFields(title, "decoder", field(handler, "decoder"), reporter);
+		}
+
+		/**
+		 * Reports the bytes retained by each field, measured as the difference when
+		 * the field is cleared
+		 */
+		private void reportFields(String title, String owner, Object obj, TestReporter reporter) {
+			long total = measure();
+			for (Class<?> clazz = obj.getClass(); clazz.getName().startsWith("net.lax1dude"); clazz = clazz
+					.getSuperclass()) {
+				for (Field f : clazz.getDeclaredFields()) {
+					if (Modifier.isStatic(f.getModifiers()) || f.getType().isPrimitive()) {
+						continue;
+					}
+					Object value = field(obj, f);
+					if (value == null) {
+						continue;
+					}
+					long size;
+					try {
+						f.set(obj, null);
+						size = total - measure();
+					} catch (IllegalAccessException ex) {
+						throw new RuntimeException(ex);
+					} finally {
+						try {
+							f.set(obj, value);
+						} catch (IllegalAccessException ex) {
+							throw new RuntimeException(ex);
+						}
+					}
+					if (size > 0l) {
+						reporter.publishEntry(title + " " + owner + "." + f.getName(), size + " bytes");
+					}
+				}
+			}
+		}
+
+	}
+
+	private static Object field(Object obj, String name) {
+		for (Class<?> clazz = obj.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+			try {
+				return field(obj, clazz.getDeclaredField(name));
+			} catch (NoSuchFieldException ex) {
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	private static Object field(Object obj, Field f) {
+		try {
+			f.setAccessible(true);
+			return f.get(obj);
+		} catch (ReflectiveOperationException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	private static ByteBuf spawnMob(int eid) {
+		ByteBuf buf = Unpooled.buffer();
+		BufferUtils.writeVarInt(buf, 0x0F);
+		BufferUtils.writeVarInt(buf, eid);
+		buf.writeByte(54);
+		buf.writeInt((eid & 15) << 5);
+		buf.writeInt(64 << 5);
+		buf.writeInt((eid >> 4) << 5);
+		buf.writeByte(0);
+		buf.writeByte(0);
+		buf.writeByte(0);
+		buf.writeShort(0);
+		buf.writeShort(0);
+		buf.writeShort(0);
+		buf.writeByte(0x7F);
+		return buf;
+	}
+
+	private static ByteBuf addPlayer(int i) {
+		ByteBuf buf = Unpooled.buffer();
+		BufferUtils.writeVarInt(buf, 0x38);
+		BufferUtils.writeVarInt(buf, 0);
+		BufferUtils.writeVarInt(buf, 1);
+		buf.writeLong(0l);
+		buf.writeLong(i);
+		BufferUtils.writeMCString(buf, "Player" + i, 16);
+		BufferUtils.writeVarInt(buf, 0);
+		BufferUtils.writeVarInt(buf, 0);
+		BufferUtils.writeVarInt(buf, 50);
+		buf.writeBoolean(false);
+		return buf;
+	}
+
+	private static ByteBuf windowItems(int numSlots) {
+		ByteBuf buf = Unpooled.buffer();
+		BufferUtils.writeVarInt(buf, 0x30);
+		buf.writeByte(0);
+		buf.writeShort(numSlots);
+		for (int i = 0; i < numSlots; ++i) {
+			buf.writeShort(-1);
+		}
+		return buf;
+	}
+
+	@Test
+	public void testFreshSession(TestReporter reporter) {
+		Session session = new Session();
+		session.report("Fresh session", reporter);
+		long size = session.measure();
+		assertTrue(size <= SESSION_BUDGET, "Fresh session retains " + size + " bytes, budget is " + SESSION_BUDGET);
+	}
+
+	@Test
+	public void testIdleSession(TestReporter reporter) {
+		Session session = new Session();
+		for (int i = 0; i < 64; ++i) {
+			session.write(spawnMob(1000 + i));
+			session.write(addPlayer(i));
+		}
+		session.write(windowItems(45));
+		session.player.getNBTTranscoder();
+		session.wire.flushOutbound();
+		session.report("Active session", reporter);
+		long before = session.measure();
+		session.handler.compact();
+		session.report("Idle session", reporter);
+		long after = session.measure();
+		reporter.publishEntry("Compaction saved", (before - after) + " bytes");
+		assertTrue(after <= before, "Compaction grew the session from " + before + " to " + after + " bytes");
+		assertTrue(after <= IDLE_SESSION_BUDGET,
+				"Idle session retains " + after + " bytes, budget is " + IDLE_SESSION_BUDGET);
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base;
+
+/**
+ * Discards info and warnings, fails the test on errors
+ */
+public class TestLogger implements IRewindLogger.IRewindSubLogger {
+
+	private final IRewindLogger parent;
+	private String name;
+
+	public TestLogger(IRewindLogger parent, String name) {
+		this.parent = parent;
+		this.name = name;
+	}
+
+	@Override
+	public void info(String msg) {
+	}
+
+	@Override
+	public void info(String msg, Throwable thrown) {
+	}
+
+	@Override
+	public void warn(String msg) {
+	}
+
+	@Override
+	public void warn(String msg, Throwable thrown) {
+	}
+
+	@Override
+	public void error(String msg) {
+		throw new AssertionError(msg);
+	}
+
+	@Override
+	public void error(String msg, Throwable thrown) {
+		throw new AssertionError(msg, thrown);
+	}
+
+	@Override
+	public IRewindSubLogger createSubLogger(String name) {
+		return new TestLogger(this, name);
+	}
+
+	@Override
+	public IRewindLogger getParent() {
+		return parent;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public void setName(String name) {
+		this.name = name;
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.lax1dude.eaglercraft.backend.server.api.IComponentHelper;
+
+public class LegacyChatConverterTest {
+
+	/**
+	 * Components and the string IComponentHelper.convertJSONToLegacySection
+	 * gives for them, a color code resets the formatting so the format codes are
+	 * written again after it
+	 */
+	private static final String[][] COMPONENTS = new String[][] {
+			{ "\"plain\"", "plain" },
+			{ "{\"text\":\"Hello\"}", "Hello" },
+			{ " { \"text\" : \"Hello\" , \"extra\" : [ ] } ", "Hello" },
+			{ "{\"text\":\"\"}", "" },
+			{ "{\"text\":\"A\",\"color\":\"red\"}", "\u00A7cA" },
+			{ "{\"text\":\"A\",\"color\":\"white\"}", "\u00A7fA" },
+			{ "{\"text\":\"A\",\"color\":\"red\",\"extra\":[{\"text\":\"B\"},{\"text\":\"C\",\"color\":\"reset\"}]}",
+					"\u00A7cAB\u00A7rC" },
+			{ "{\"text\":\"\",\"extra\":[{\"text\":\"A\",\"color\":\"gold\"},\"B\"]}", "\u00A76A\u00A7rB" },
+			{ "{\"text\":\"A\",\"bold\":true,\"extra\":[{\"text\":\"B\",\"color\":\"red\"}]}",
+					"\u00A7lA\u00A7c\u00A7lB" },
+			{ "{\"text\":\"A\",\"bold\":true,\"extra\":[{\"text\":\"B\",\"bold\":false}]}", "\u00A7lA\u00A7rB" },
+			{ "{\"text\":\"A\",\"color\":\"aqua\",\"italic\":true,\"extra\":[{\"text\":\"B\",\"underlined\":true}]}",
+					"\u00A7b\u00A7oA\u00A7nB" },
+			{ "{\"extra\":[{\"text\":\"x\",\"obfuscated\":true,\"strikethrough\":true}],\"text\":\"\"}",
+					"\u00A7k\u00A7mx" },
+			{ "{\"text\":\"Click\",\"clickEvent\":{\"action\":\"open_url\",\"value\":\"https://a/\"},"
+					+ "\"hoverEvent\":{\"action\":\"show_text\",\"value\":{\"text\":\"}\"}},\"insertion\":\"i\"}",
+					"Click" },
+			{ "{\"text\":\"caf\\u00e9 \\\"q\\\" \\\\ \\/ \\ud83d\\ude00\"}", "caf\u00E9 \"q\" \\ / \uD83D\uDE00" },
+			{ "{\"text\":\"caf\u00E9 \u2714 \uD83D\uDE00\"}", "caf\u00E9 \u2714 \uD83D\uDE00" },
+			{ "{\"text\":\"a\\tb\\nc\"}", "a\tb\nc" } };
+
+	/**
+	 * Components that need the API helper
+	 */
+	private static final String[] FALLBACK = new String[] {
+			"{\"translate\":\"chat.type.text\",\"with\":[\"Steve\",\"hi\"]}",
+			"{\"text\":\"A\",\"color\":\"#FF5555\"}",
+			"[\"a\",\"b\"]",
+			"{\"text\":\"A\",\"bold\":1}",
+			"{\"score\":{\"name\":\"Steve\",\"objective\":\"kills\"}}",
+			"{\"text\":\"A\"" };
+
+	private static ByteBuf utf8(String json) {
+		return Unpooled.wrappedBuffer(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String readLegacy(ByteBuf out) {
+		char[] chars = new char[out.readUnsignedShort()];
+		for (int i = 0; i < chars.length; ++i) {
+			chars[i] = out.readChar();
+		}
+		return new String(chars);
+	}
+
+	@Test
+	public void testConvert() {
+		for (String[] c : COMPONENTS) {
+			ByteBuf in = utf8(c[0]);
+			ByteBuf out = Unpooled.buffer();
+			assertTrue(LegacyChatConverter.convert(in, 0, in.readableBytes(), out, 32767), c[0]);
+			assertEquals(0, in.readerIndex(), c[0]);
+			assertEquals(c[1], readLegacy(out), c[0]);
+		}
+	}
+
+	@Test
+	public void testTruncate() {
+		for (String[] c : COMPONENTS) {
+			for (int maxLen = 0; maxLen <= c[1].length(); ++maxLen) {
+				ByteBuf in = utf8(c[0]);
+				ByteBuf out = Unpooled.buffer();
+				assertTrue(LegacyChatConverter.convert(in, 0, in.readableBytes(), out, maxLen), c[0]);
+				assertEquals(c[1].substring(0, maxLen), readLegacy(out), c[0] + " cut at " + maxLen);
+			}
+		}
+	}
+
+	@Test
+	public void testFallback() {
+		for (String json : FALLBACK) {
+			ByteBuf in = utf8(json);
+			ByteBuf out = Unpooled.buffer();
+			out.writeByte(0x7F);
+			assertFalse(LegacyChatConverter.convert(in, 0, in.readableBytes(), out, 32767), json);
+			assertEquals(1, out.writerIndex(), json);
+		}
+	}
+
+	@Test
+	public void testCacheFallback() {
+		List<String> calls = new ArrayList<>();
+		IComponentHelper helper = new IComponentHelper() {
+
+			@Override
+			public String convertJSONToLegacySection(String json) {
+				calls.add(json);
+				return "\u00A7cconverted";
+			}
+
+			@Override
+			public String convertLegacySectionToJSON(String legacy) {
+				throw new UnsupportedOperationException();
+			}
+
+		};
+		ChatComponentCache cache = new ChatComponentCache();
+		for (String json : FALLBACK) {
+			ByteBuf in = Unpooled.buffer();
+			BufferUtils.writeMCString(in, json, 32767);
+			ByteBuf out = Unpooled.buffer();
+			cache.convertToLegacy(in, 32767, out, 5, helper);
+			assertEquals(0, in.readableBytes(), json);
+			assertEquals("\u00A7ccon", readLegacy(out), json);
+		}
+		assertEquals(List.of(FALLBACK), calls);
+		calls.clear();
+		for (String[] c : COMPONENTS) {
+			ByteBuf in = Unpooled.buffer();
+			BufferUtils.writeMCString(in, c[0], 32767);
+			ByteBuf out = Unpooled.buffer();
+			cache.convertToLegacy(in, 32767, out, 32767, helper);
+			assertEquals(c[1], readLegacy(out), c[0]);
+		}
+		assertEquals(List.of(), calls);
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2025 lax1dude, ayunami2000. All Rights Reserved.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+
+package net.lax1dude.eaglercraft.backend.rewind_v1_6.base.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.RewindPlayer;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.RewindProtocol;
+import net.lax1dude.eaglercraft.backend.rewind_v1_6.base.TestLogger;
+
+public class MetadataRemapperTest {
+
+	public static final int ZOMBIE = 54 + 100;
+	public static final int SILVERFISH = 60 + 100;
+
+	/**
+	 * Zombie metadata with a byte, short, float, int and byte entry
+	 */
+	public static ByteBuf createZombieMetadata() {
+		ByteBuf buf = Unpooled.buffer();
+		buf.writeByte((0 << 5) | 0);
+		buf.writeByte(0x02);
+		buf.writeByte((1 << 5) | 1);
+		buf.writeShort(300);
+		buf.writeByte((3 << 5) | 6);
+		buf.writeFloat(20.0f);
+		buf.writeByte((2 << 5) | 7);
+		buf.writeInt(0);
+		buf.writeByte((0 << 5) | 12);
+		buf.writeByte(1);
+		buf.writeByte(0x7F);
+		return buf;
+	}
+
+	/**
+	 * Silverfish metadata, which the legacy client gets none of, with a slot
+	 * entry holding an item with a display name
+	 */
+	public static ByteBuf createDroppedSlotMetadata() {
+		ByteBuf buf = Unpooled.buffer();
+		buf.writeByte((0 << 5) | 0);
+		buf.writeByte(0);
+		buf.writeByte((5 << 5) | 10);
+		buf.writeShort(1);
+		buf.writeByte(1);
+		buf.writeShort(0);
+		buf.writeByte(10);
+		buf.writeShort(0);
+		buf.writeByte(10);
+		writeName(buf, "display");
+		buf.writeByte(8);
+		writeName(buf, "Name");
+		writeName(buf, "Test");
+		buf.writeByte(0);
+		buf.writeByte(0);
+		buf.writeByte(0x7F);
+		return buf;
+	}
+
+	private static void writeName(ByteBuf buf, String str) {
+		buf.writeShort(str.length());
+		for (int i = 0; i < str.length(); ++i) {
+			buf.writeByte(str.charAt(i));
+		}
+	}
+
+	public static RewindPlayer<Object> createPlayer() {
+		TestLogger logger = new TestLogger(null, "EaglerXRewind");
+		return new RewindPlayer<>(new RewindProtocol<>(() -> logger), null, null, null, "TestPlayer");
+	}
+
+	@Test
+	public void testConvert() {
+		ByteBuf in = createZombieMetadata();
+		ByteBuf out = Unpooled.buffer();
+		assertEquals(null, MetadataRemapper.convertMetadata2Legacy(in, out, ZOMBIE, null));
+		assertEquals(0, in.readableBytes());
+		assertEquals(0x7F, out.getUnsignedByte(out.writerIndex() - 1));
+	}
+
+	@Test
+	public void testDroppedSlot() {
+		ByteBuf in = createDroppedSlotMetadata();
+		ByteBuf out = Unpooled.buffer();
+		MetadataRemapper.convertMetadata2Legacy(in, out, SILVERFISH, createPlayer());
+		assertEquals(0, in.readableBytes());
+		assertEquals(1, out.readableBytes());
+		assertEquals(0x7F, out.getUnsignedByte(0));
+	}
+
+	@Test
+	public void testNoAllocation() {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		RewindPlayer<Object> player = createPlayer();
+		ByteBuf zombie = createZombieMetadata();
+		ByteBuf silverfish = createDroppedSlotMetadata();
+		ByteBuf out = Unpooled.buffer(256);
+		long tid = Thread.currentThread().getId();
+		long allocated = 0l;
+		for (int j = 0; j < 2; ++j) {
+			long start = bean.getThreadAllocatedBytes(tid);
+			for (int i = 0; i < 100000; ++i) {
+				zombie.readerIndex(0);
+				silverfish.readerIndex(0);
+				out.clear();
+				MetadataRemapper.convertMetadata2Legacy(zombie, out, ZOMBIE, player);
+				MetadataRemapper.convertMetadata2Legacy(silverfish, out, SILVERFISH, player);
+			}
+			allocated = bean.getThreadAllocatedBytes(tid) - start;
+		}
+		assertTrue(allocated < 100000l, "Converting metadata 100000 times allocated " + allocated + " bytes");
+	}
+
+}